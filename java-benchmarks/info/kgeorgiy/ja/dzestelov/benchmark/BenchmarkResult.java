@@ -0,0 +1,149 @@
+package info.kgeorgiy.ja.dzestelov.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timings of one benchmark with fixed parameters, written in the layout of JMH JSON results,
+ * so runs on different JDKs can be compared with the same tools.
+ */
+public class BenchmarkResult {
+
+    private final String benchmark;
+    private final Map<String, String> params = new LinkedHashMap<>();
+    private final List<Long> nanos = new ArrayList<>();
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+    private long bytesPerOperation;
+
+    public BenchmarkResult(final String benchmark) {
+        this.benchmark = benchmark;
+    }
+
+    public BenchmarkResult param(final String name, final Object value) {
+        params.put(name, String.valueOf(value));
+        return this;
+    }
+
+    public void setBytesPerOperation(final long bytes) {
+        this.bytesPerOperation = bytes;
+    }
+
+    /**
+     * Adds a secondary metric, reported after bytes per second.
+     */
+    public BenchmarkResult metric(final String name, final double score, final String unit) {
+        metrics.put(name, new Metric(score, unit));
+        return this;
+    }
+
+    public void add(final long operationNanos) {
+        nanos.add(operationNanos);
+    }
+
+    public String getBenchmark() {
+        return benchmark;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    /**
+     * Returns mean time of an operation in milliseconds.
+     */
+    public double getScore() {
+        return nanos.stream().mapToLong(Long::longValue).average().orElse(0) / 1e6;
+    }
+
+    /**
+     * Returns half-width of the 99.9% confidence interval of the score, by normal approximation.
+     */
+    public double getScoreError() {
+        if (nanos.size() < 2) {
+            return Double.NaN;
+        }
+        final double mean = getScore();
+        double sum = 0;
+        for (final long value : nanos) {
+            sum += Math.pow(value / 1e6 - mean, 2);
+        }
+        return 3.291 * Math.sqrt(sum / (nanos.size() - 1)) / Math.sqrt(nanos.size());
+    }
+
+    /**
+     * Returns bytes processed per second, or zero if the benchmark does not process a known number of bytes.
+     */
+    public double getBytesPerSecond() {
+        final double score = getScore();
+        return score == 0 ? 0 : bytesPerOperation / (score / 1e3);
+    }
+
+    public String toJson() {
+        final StringBuilder json = new StringBuilder();
+        json.append("  {\n");
+        json.append("    \"benchmark\" : ").append(quote(benchmark)).append(",\n");
+        json.append("    \"mode\" : \"avgt\",\n");
+        json.append("    \"jdkVersion\" : ").append(quote(System.getProperty("java.version"))).append(",\n");
+        json.append("    \"vmName\" : ").append(quote(System.getProperty("java.vm.name"))).append(",\n");
+        json.append("    \"vmVersion\" : ").append(quote(System.getProperty("java.vm.version"))).append(",\n");
+        json.append("    \"measurementIterations\" : ").append(nanos.size()).append(",\n");
+        json.append("    \"params\" : {");
+        String separator = "\n";
+        for (final Map.Entry<String, String> param : params.entrySet()) {
+            json.append(separator).append("      ").append(quote(param.getKey())).append(" : ").append(quote(param.getValue()));
+            separator = ",\n";
+        }
+        json.append(params.isEmpty() ? "},\n" : "\n    },\n");
+        json.append("    \"primaryMetric\" : {\n");
+        json.append("      \"score\" : ").append(number(getScore())).append(",\n");
+        json.append("      \"scoreError\" : ").append(number(getScoreError())).append(",\n");
+        json.append("      \"scoreUnit\" : \"ms/op\",\n");
+        json.append("      \"rawData\" : [ [ ");
+        for (int i = 0; i < nanos.size(); i++) {
+            json.append(i == 0 ? "" : ", ").append(number(nanos.get(i) / 1e6));
+        }
+        json.append(" ] ]\n");
+        json.append("    },\n");
+        json.append("    \"secondaryMetrics\" : {\n");
+        json.append("      \"bytes/s\" : { \"score\" : ").append(number(getBytesPerSecond())).append(", \"scoreUnit\" : \"B/s\" }");
+        for (final Map.Entry<String, Metric> metric : metrics.entrySet()) {
+            json.append(",\n      ").append(quote(metric.getKey()))
+                    .append(" : { \"score\" : ").append(number(metric.getValue().score))
+                    .append(", \"scoreUnit\" : ").append(quote(metric.getValue().unit)).append(" }");
+        }
+        json.append("\n");
+        json.append("    }\n");
+        json.append("  }");
+        return json.toString();
+    }
+
+    private record Metric(double score, String unit) {
+    }
+
+    private static String number(final double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "\"NaN\"";
+    }
+
+    private static String quote(final String value) {
+        final StringBuilder result = new StringBuilder("\"");
+        for (final char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> result.append("\\\"");
+                case '\\' -> result.append("\\\\");
+                case '\n' -> result.append("\\n");
+                case '\r' -> result.append("\\r");
+                case '\t' -> result.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        result.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.append('"').toString();
+    }
+}
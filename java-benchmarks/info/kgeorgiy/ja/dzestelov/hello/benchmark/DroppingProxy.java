@@ -0,0 +1,151 @@
+package info.kgeorgiy.ja.dzestelov.hello.benchmark;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback UDP proxy forwarding datagrams between clients and a server and dropping each of them,
+ * in both directions, with the given probability. Every client address gets its own upstream channel,
+ * so responses are routed back by the channel they arrive on. Drops are drawn from a seeded generator,
+ * so runs with the same traffic drop the same datagrams.
+ */
+public class DroppingProxy implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InetSocketAddress server;
+    private final double loss;
+    private final SplittableRandom random;
+    private final DatagramChannel front;
+    private final Selector selector;
+    private final Map<SocketAddress, DatagramChannel> upstreams = new HashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+
+    public DroppingProxy(final InetSocketAddress server, final double loss, final long seed) throws IOException {
+        if (loss < 0 || loss >= 1) {
+            throw new IllegalArgumentException("Loss must be in [0, 1)");
+        }
+        this.server = server;
+        this.loss = loss;
+        this.random = new SplittableRandom(seed);
+        this.selector = Selector.open();
+        this.front = DatagramChannel.open();
+        try {
+            front.configureBlocking(false);
+            front.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            front.register(selector, SelectionKey.OP_READ);
+        } catch (final IOException e) {
+            front.close();
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "hello-proxy");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) front.getLocalAddress()).getPort();
+    }
+
+    public long getForwarded() {
+        return forwarded.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                selector.select();
+                for (final SelectionKey key : selector.selectedKeys()) {
+                    if (key.channel() == front) {
+                        forwardRequests();
+                    } else {
+                        forwardResponses(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (final IOException | ClosedSelectorException ignored) {
+            // proxy is closing
+        }
+    }
+
+    private void forwardRequests() throws IOException {
+        SocketAddress client;
+        while ((client = front.receive(buffer.clear())) != null) {
+            if (drop()) {
+                continue;
+            }
+            DatagramChannel upstream = upstreams.get(client);
+            if (upstream == null) {
+                upstream = DatagramChannel.open();
+                upstream.configureBlocking(false);
+                upstream.connect(server);
+                upstream.register(selector, SelectionKey.OP_READ, client);
+                upstreams.put(client, upstream);
+            }
+            count(upstream.write(buffer.flip()));
+        }
+    }
+
+    private void forwardResponses(final SelectionKey key) throws IOException {
+        final DatagramChannel upstream = (DatagramChannel) key.channel();
+        try {
+            while (upstream.read(buffer.clear()) > 0) {
+                if (!drop()) {
+                    count(front.send(buffer.flip(), (SocketAddress) key.attachment()));
+                }
+            }
+        } catch (final IOException ignored) {
+            // server is unreachable, the client retransmits
+        }
+    }
+
+    private boolean drop() {
+        if (loss > 0 && random.nextDouble() < loss) {
+            dropped.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Datagrams the socket had no room for are lost, as they would be by the network.
+     */
+    private void count(final int written) {
+        (written == 0 ? dropped : forwarded).incrementAndGet();
+    }
+
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        selector.close();
+        try {
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (final DatagramChannel upstream : upstreams.values()) {
+            upstream.close();
+        }
+        front.close();
+    }
+}
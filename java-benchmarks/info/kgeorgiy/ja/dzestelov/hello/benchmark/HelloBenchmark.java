@@ -0,0 +1,312 @@
+package info.kgeorgiy.ja.dzestelov.hello.benchmark;
+
+import info.kgeorgiy.ja.dzestelov.benchmark.BenchmarkResult;
+import info.kgeorgiy.ja.dzestelov.hello.HelloUDPClient;
+import info.kgeorgiy.ja.dzestelov.util.LatencyHistogram;
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Measures throughput and latency of Hello servers under load of {@link HelloUDPClient} over loopback,
+ * sweeping server implementations, client threads, requests in flight per thread, request sizes and packet loss,
+ * and prints results as JSON in the layout used by JMH.
+ *
+ * <p>Usage: {@code HelloBenchmark [--name value]...}, see {@link #usage()} for options.
+ * Latency of a request is measured by the client from its first send to its first valid response,
+ * retransmissions included, and reported through {@link HelloUDPClient.Listener}. Lines the client prints are discarded.
+ * Lost datagrams are simulated by a {@link DroppingProxy} between client and server.
+ *
+ * <p>With {@code --virtual true} clients run a virtual thread per requester and servers are created
+ * by their {@code (boolean virtualThreads)} constructors, so {@code --virtual false,true} compares
+ * virtual threads with fixed pools of platform threads. Servers and modes that cannot run on this platform,
+ * such as virtual threads before Java 21 or {@code HelloUDPShardedServer} without {@code SO_REUSEPORT}, are skipped.
+ */
+public class HelloBenchmark {
+
+    private static final String OPTION_PREFIX = "--";
+    private static final String SERVER_PACKAGE = "info.kgeorgiy.ja.dzestelov.hello.";
+    private static final long SEED = 0x5EED;
+
+    private List<String> servers = List.of("HelloUDPServer", "HelloUDPNonblockingServer", "HelloUDPShardedServer");
+    private int serverThreads = Runtime.getRuntime().availableProcessors();
+    private List<Boolean> virtual = List.of(false);
+    private List<Integer> threads = List.of(1, 4, 16);
+    private List<Integer> windows = List.of(1, 8);
+    private List<Integer> payloads = List.of(16, 512);
+    private List<Double> losses = List.of(0.0, 0.05);
+    private int requests = 1000;
+    private int warmupIterations = 1;
+    private int iterations = 3;
+    private String output = "-";
+
+    private final List<BenchmarkResult> results = new ArrayList<>();
+
+    public static void main(final String[] args) {
+        final HelloBenchmark benchmark = new HelloBenchmark();
+        try {
+            benchmark.parse(args);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(usage());
+            return;
+        }
+
+        try {
+            benchmark.run();
+        } catch (final Exception e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+        }
+    }
+
+    private static String usage() {
+        return "Usage: java " + HelloBenchmark.class.getName() + " [--servers <class,...>] [--server-threads <n>]"
+                + " [--virtual <true|false,...>] [--threads <n,...>] [--windows <n,...>] [--payloads <bytes,...>] [--losses <probability,...>]"
+                + " [--requests <n>] [--warmup <n>] [--iterations <n>] [--output <file|->]";
+    }
+
+    private void parse(final String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith(OPTION_PREFIX) || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected option with value, found: " + args[i]);
+            }
+            final String name = args[i].substring(OPTION_PREFIX.length());
+            final String value = args[i + 1];
+            switch (name) {
+                case "servers" -> servers = List.of(value.split(","));
+                case "server-threads" -> serverThreads = parseInt(name, value, 1);
+                case "virtual" -> virtual = parseList(value, v -> parseBoolean(name, v));
+                case "threads" -> threads = parseList(value, v -> parseInt(name, v, 1));
+                case "windows" -> windows = parseList(value, v -> parseInt(name, v, 1));
+                case "payloads" -> payloads = parseList(value, v -> parseInt(name, v, 1));
+                case "losses" -> losses = parseList(value, v -> parseLoss(name, v));
+                case "requests" -> requests = parseInt(name, value, 1);
+                case "warmup" -> warmupIterations = parseInt(name, value, 0);
+                case "iterations" -> iterations = parseInt(name, value, 1);
+                case "output" -> output = value;
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private static <T> List<T> parseList(final String value, final Function<String, T> parser) {
+        return Arrays.stream(value.split(",")).map(parser).toList();
+    }
+
+    private static int parseInt(final String name, final String value, final int min) {
+        try {
+            final int result = Integer.parseInt(value);
+            if (min <= result) {
+                return result;
+            }
+        } catch (final NumberFormatException ignored) {
+            // handled below
+        }
+        throw new IllegalArgumentException("Option " + OPTION_PREFIX + name + " expects integer from " + min + ", found: " + value);
+    }
+
+    private static boolean parseBoolean(final String name, final String value) {
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value);
+        }
+        throw new IllegalArgumentException("Option " + OPTION_PREFIX + name + " expects true or false, found: " + value);
+    }
+
+    private static double parseLoss(final String name, final String value) {
+        try {
+            final double result = Double.parseDouble(value);
+            if (0 <= result && result < 1) {
+                return result;
+            }
+        } catch (final NumberFormatException ignored) {
+            // handled below
+        }
+        throw new IllegalArgumentException("Option " + OPTION_PREFIX + name + " expects probability in [0, 1), found: " + value);
+    }
+
+    private void run() throws Exception {
+        final PrintStream stdout = System.out;
+        final Recorder recorder = new Recorder();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for (final String server : servers) {
+                for (final boolean virtualThreads : virtual) {
+                    try {
+                        for (final double loss : losses) {
+                            benchmarkServer(server, virtualThreads, loss, recorder);
+                        }
+                    } catch (final UnsupportedOperationException e) {
+                        System.err.println("Skipping " + server + (virtualThreads ? " on virtual threads: " : ": ")
+                                + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            System.setOut(stdout);
+        }
+        writeResults(stdout);
+    }
+
+    private void benchmarkServer(
+            final String serverName,
+            final boolean virtualThreads,
+            final double loss,
+            final Recorder recorder
+    ) throws Exception {
+        final int port = getFreePort();
+        try (final HelloServer server = newServer(serverName, virtualThreads)) {
+            server.start(port, serverThreads);
+            final InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+            try (final DroppingProxy proxy = new DroppingProxy(address, loss, SEED)) {
+                for (final int threadCount : threads) {
+                    for (final int window : windows) {
+                        for (final int payload : payloads) {
+                            final BenchmarkResult result = new BenchmarkResult("hello")
+                                    .param("server", serverName)
+                                    .param("virtual", virtualThreads)
+                                    .param("loss", loss)
+                                    .param("threads", threadCount)
+                                    .param("window", window)
+                                    .param("payload", payload);
+                            measure(result, proxy, recorder, virtualThreads, threadCount, window, getPrefix(payload));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void measure(
+            final BenchmarkResult result,
+            final DroppingProxy proxy,
+            final Recorder recorder,
+            final boolean virtualThreads,
+            final int threadCount,
+            final int window,
+            final String prefix
+    ) throws IOException {
+        final HelloUDPClient client = new HelloUDPClient(virtualThreads, window, recorder);
+        final String host = InetAddress.getLoopbackAddress().getHostAddress();
+        final int port = proxy.getPort();
+        for (int i = 0; i < warmupIterations; i++) {
+            client.run(host, port, prefix, threadCount, requests);
+        }
+
+        recorder.reset();
+        final long forwarded = proxy.getForwarded();
+        final long dropped = proxy.getDropped();
+        for (int i = 0; i < iterations; i++) {
+            final long start = System.nanoTime();
+            client.run(host, port, prefix, threadCount, requests);
+            result.add(System.nanoTime() - start);
+        }
+
+        final long total = (long) threadCount * requests;
+        final LatencyHistogram latencies = recorder.latencies;
+        result.setBytesPerOperation(total * prefix.length());
+        result.metric("requests/s", total / (result.getScore() / 1e3), "ops/s")
+                .metric("p50", latencies.getPercentile(0.5) / 1e3, "us")
+                .metric("p99", latencies.getPercentile(0.99) / 1e3, "us")
+                .metric("p999", latencies.getPercentile(0.999) / 1e3, "us")
+                .metric("retransmissions", recorder.retransmissions.sum() / (double) iterations, "#/op")
+                .metric("answered", latencies.getCount() / (double) iterations, "#/op")
+                .metric("forwarded", (proxy.getForwarded() - forwarded) / (double) iterations, "#/op")
+                .metric("dropped", (proxy.getDropped() - dropped) / (double) iterations, "#/op");
+        results.add(result);
+        System.err.printf(
+                "%-6s %-90s %10.0f req/s  p50 %8.1f us  p99 %8.1f us  p999 %8.1f us%n",
+                result.getBenchmark(), result.getParams(), total / (result.getScore() / 1e3),
+                latencies.getPercentile(0.5) / 1e3, latencies.getPercentile(0.99) / 1e3,
+                latencies.getPercentile(0.999) / 1e3
+        );
+    }
+
+    /**
+     * Returns prefix making requests of the given size for small thread and request numbers.
+     */
+    private static String getPrefix(final int payload) {
+        return "p".repeat(Math.max(1, payload - "_0_0".length())) + "_";
+    }
+
+    private static int getFreePort() throws IOException {
+        try (final DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the server has no virtual thread mode or it is not supported
+     */
+    private static HelloServer newServer(final String name, final boolean virtualThreads)
+            throws ReflectiveOperationException {
+        final Class<?> type = Class.forName(name.contains(".") ? name : SERVER_PACKAGE + name);
+        if (!virtualThreads) {
+            return (HelloServer) type.getConstructor().newInstance();
+        }
+        try {
+            return (HelloServer) type.getConstructor(boolean.class).newInstance(true);
+        } catch (final NoSuchMethodException e) {
+            throw new UnsupportedOperationException("no virtual thread mode");
+        } catch (final InvocationTargetException e) {
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                throw (UnsupportedOperationException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void writeResults(final PrintStream stdout) throws IOException {
+        final StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append(i == 0 ? "" : ",\n").append(results.get(i).toJson());
+        }
+        json.append("\n]\n");
+
+        if ("-".equals(output)) {
+            final PrintStream out = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+            out.print(json);
+            out.flush();
+        } else {
+            Files.writeString(Path.of(output), json, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Records latencies of answered requests and counts retransmissions reported by the client.
+     */
+    private static class Recorder implements HelloUDPClient.Listener {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder retransmissions = new LongAdder();
+
+        private void reset() {
+            latencies.reset();
+            retransmissions.reset();
+        }
+
+        @Override
+        public void sent(final int thread, final int request, final boolean retransmission) {
+            if (retransmission) {
+                retransmissions.increment();
+            }
+        }
+
+        @Override
+        public void answered(final int thread, final int request, final long nanos) {
+            latencies.record(nanos);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package info.kgeorgiy.ja.dzestelov.walk.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic file tree in a temporary directory: many tiny files spread over a wide directory level,
+ * a few huge files and a deep chain of nested directories. Content is generated from a fixed seed,
+ * so trees of the same shape are identical between runs.
+ */
+public class BenchmarkTree implements AutoCloseable {
+
+    private static final long SEED = 0x5EED;
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int MAX_TINY_SIZE = 1 << 12;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final Path root;
+    private final List<Path> tinyFiles = new ArrayList<>();
+    private final List<Path> hugeFiles = new ArrayList<>();
+    private long tinyBytes;
+
+    public BenchmarkTree(final int tinyCount, final int hugeCount, final long hugeSize, final int depth) throws IOException {
+        this.root = Files.createTempDirectory("walk-benchmark");
+        final Random random = new Random(SEED);
+
+        final Path tiny = Files.createDirectory(root.resolve("tiny"));
+        for (int i = 0; i < tinyCount; i++) {
+            final Path dir = Files.createDirectories(tiny.resolve("d" + i / FILES_PER_DIRECTORY));
+            final byte[] content = new byte[random.nextInt(MAX_TINY_SIZE + 1)];
+            random.nextBytes(content);
+            tinyFiles.add(Files.write(dir.resolve("f" + i), content));
+            tinyBytes += content.length;
+        }
+
+        final Path huge = Files.createDirectory(root.resolve("huge"));
+        for (int i = 0; i < hugeCount; i++) {
+            hugeFiles.add(writeHuge(huge.resolve("h" + i), hugeSize, random));
+        }
+
+        Path dir = root.resolve("deep");
+        for (int i = 0; i < depth; i++) {
+            dir = Files.createDirectories(dir.resolve("n" + i));
+            Files.write(dir.resolve("f"), new byte[]{(byte) i});
+        }
+    }
+
+    private static Path writeHuge(final Path file, final long size, final Random random) throws IOException {
+        final byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        try (final OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += buffer.length) {
+                random.nextBytes(buffer);
+                out.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public List<Path> getTinyFiles() {
+        return tinyFiles;
+    }
+
+    public List<Path> getHugeFiles() {
+        return hugeFiles;
+    }
+
+    public long getTinyBytes() {
+        return tinyBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
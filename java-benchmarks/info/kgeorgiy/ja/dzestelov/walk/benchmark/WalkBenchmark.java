@@ -0,0 +1,231 @@
+package info.kgeorgiy.ja.dzestelov.walk.benchmark;
+
+import info.kgeorgiy.ja.dzestelov.benchmark.BenchmarkResult;
+import info.kgeorgiy.ja.dzestelov.walk.FileChecksumBuilder;
+import info.kgeorgiy.ja.dzestelov.walk.walker.BaseWalker;
+import info.kgeorgiy.ja.dzestelov.walk.walker.RecursiveWalker;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures hashing of single files through every I/O path and walks of a whole synthetic tree
+ * with every traversal, for each algorithm, printing results as JSON in the layout used by JMH.
+ *
+ * <p>Usage: {@code WalkBenchmark [--name value]...}, see {@link #usage()} for options.
+ * Files are read from the page cache after the first warmup iteration, so results measure hashing and I/O overhead,
+ * not the disk.
+ */
+public class WalkBenchmark {
+
+    private static final String OPTION_PREFIX = "--";
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private int tinyFiles = 10_000;
+    private int hugeFiles = 2;
+    private long hugeSize = 1L << 28;
+    private int depth = 256;
+    private int warmupIterations = 2;
+    private int iterations = 5;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private List<String> algorithms = List.of("SHA-1", "SHA-256", "CRC32C", "XXH64");
+    private String output = "-";
+
+    private final List<BenchmarkResult> results = new ArrayList<>();
+
+    public static void main(final String[] args) {
+        final WalkBenchmark benchmark = new WalkBenchmark();
+        try {
+            benchmark.parse(args);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(usage());
+            return;
+        }
+
+        try {
+            benchmark.run();
+        } catch (final Exception e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+        }
+    }
+
+    private static String usage() {
+        return "Usage: java " + WalkBenchmark.class.getName() + " [--tiny-files <n>] [--huge-files <n>]"
+                + " [--huge-size <bytes>] [--depth <n>] [--warmup <n>] [--iterations <n>] [--threads <n>]"
+                + " [--algorithms <name,...>] [--output <file|->]";
+    }
+
+    private void parse(final String[] args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith(OPTION_PREFIX) || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected option with value, found: " + args[i]);
+            }
+            final String name = args[i].substring(OPTION_PREFIX.length());
+            final String value = args[i + 1];
+            switch (name) {
+                case "tiny-files" -> tinyFiles = parseInt(name, value, 0);
+                case "huge-files" -> hugeFiles = parseInt(name, value, 0);
+                case "huge-size" -> hugeSize = parseLong(name, value, 0, Long.MAX_VALUE);
+                case "depth" -> depth = parseInt(name, value, 0);
+                case "warmup" -> warmupIterations = parseInt(name, value, 0);
+                case "iterations" -> iterations = parseInt(name, value, 1);
+                case "threads" -> threads = parseInt(name, value, 1);
+                case "algorithms" -> algorithms = List.of(value.split(","));
+                case "output" -> output = value;
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private static int parseInt(final String name, final String value, final int min) {
+        return (int) parseLong(name, value, min, Integer.MAX_VALUE);
+    }
+
+    private static long parseLong(final String name, final String value, final long min, final long max) {
+        try {
+            final long result = Long.parseLong(value);
+            if (min <= result && result <= max) {
+                return result;
+            }
+        } catch (final NumberFormatException ignored) {
+            // handled below
+        }
+        throw new IllegalArgumentException("Option " + OPTION_PREFIX + name + " expects integer from " + min + " to " + max + ", found: " + value);
+    }
+
+    private void run() throws Exception {
+        System.err.printf("Generating %d tiny files, %d files of %d bytes, depth %d%n", tinyFiles, hugeFiles, hugeSize, depth);
+        try (final BenchmarkTree tree = new BenchmarkTree(tinyFiles, hugeFiles, hugeSize, depth)) {
+            for (final String algorithm : algorithms) {
+                for (final IoPath io : IoPath.values()) {
+                    benchmarkHashing(algorithm, io, "tiny", tree.getTinyFiles(), tree.getTinyBytes());
+                    benchmarkHashing(algorithm, io, "huge", tree.getHugeFiles(), (long) hugeFiles * hugeSize);
+                }
+                final long treeBytes = tree.getTinyBytes() + (long) hugeFiles * hugeSize + depth;
+                for (final Traversal traversal : Traversal.values()) {
+                    for (final int hashThreads : threads == 1 ? List.of(1) : List.of(1, threads)) {
+                        benchmarkWalk(algorithm, traversal, hashThreads, tree.getRoot(), treeBytes);
+                    }
+                }
+            }
+        }
+        writeResults();
+    }
+
+    private void benchmarkHashing(
+            final String algorithm,
+            final IoPath io,
+            final String fileSet,
+            final List<Path> files,
+            final long bytes
+    ) throws Exception {
+        final FileChecksumBuilder builder = new FileChecksumBuilder(algorithm, io.channelThreshold, io.mapThreshold);
+        final byte[] checksum = new byte[builder.getChecksumSize()];
+        final BenchmarkResult result = new BenchmarkResult("hash")
+                .param("algorithm", algorithm)
+                .param("io", io.name().toLowerCase())
+                .param("files", fileSet);
+        measure(result, bytes, () -> {
+            for (final Path file : files) {
+                if (!builder.getChecksum(file, Files.size(file), checksum)) {
+                    throw new IOException("Unable to hash " + file);
+                }
+            }
+        });
+    }
+
+    private void benchmarkWalk(
+            final String algorithm,
+            final Traversal traversal,
+            final int hashThreads,
+            final Path root,
+            final long bytes
+    ) throws Exception {
+        final Path input = Files.createTempFile("walk-benchmark", ".in");
+        final Path output = Files.createTempFile("walk-benchmark", ".out");
+        try {
+            Files.writeString(input, root.toString(), StandardCharsets.UTF_8);
+            final FileChecksumBuilder builder = new FileChecksumBuilder(algorithm);
+            final BenchmarkResult result = new BenchmarkResult("walk")
+                    .param("algorithm", algorithm)
+                    .param("traversal", traversal.name().toLowerCase())
+                    .param("threads", hashThreads);
+            measure(result, bytes, () -> {
+                final BaseWalker walker = traversal == Traversal.SEQUENTIAL
+                        ? new RecursiveWalker(input.toString(), output.toString(), StandardCharsets.UTF_8)
+                        : new RecursiveWalker(
+                                input.toString(), output.toString(), StandardCharsets.UTF_8,
+                                threads, traversal == Traversal.ORDERED
+                        );
+                walker.walk(builder, hashThreads);
+            });
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private void measure(final BenchmarkResult result, final long bytes, final Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.run();
+        }
+        for (int i = 0; i < iterations; i++) {
+            final long start = System.nanoTime();
+            operation.run();
+            result.add(System.nanoTime() - start);
+        }
+        result.setBytesPerOperation(bytes);
+        results.add(result);
+        System.err.printf(
+                "%-6s %-50s %12.3f +- %8.3f ms/op %10.1f MiB/s%n",
+                result.getBenchmark(), result.getParams(), result.getScore(), result.getScoreError(),
+                result.getBytesPerSecond() / (1 << 20)
+        );
+    }
+
+    private void writeResults() throws IOException {
+        final StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append(i == 0 ? "" : ",\n").append(results.get(i).toJson());
+        }
+        json.append("\n]\n");
+
+        if ("-".equals(output)) {
+            final PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+            out.print(json);
+            out.flush();
+        } else {
+            Files.writeString(Path.of(output), json, StandardCharsets.UTF_8);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    /**
+     * Ways {@link FileChecksumBuilder} reads files, selected by its thresholds.
+     */
+    private enum IoPath {
+        STREAM(UNLIMITED, UNLIMITED),
+        CHANNEL(0, UNLIMITED),
+        MMAP(0, 0);
+
+        private final long channelThreshold;
+        private final long mapThreshold;
+
+        IoPath(final long channelThreshold, final long mapThreshold) {
+            this.channelThreshold = channelThreshold;
+            this.mapThreshold = mapThreshold;
+        }
+    }
+
+    private enum Traversal { SEQUENTIAL, ORDERED, UNORDERED }
+}
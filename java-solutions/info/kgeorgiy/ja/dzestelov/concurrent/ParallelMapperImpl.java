@@ -3,23 +3,53 @@ package info.kgeorgiy.ja.dzestelov.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * Class to apply function to list of arguments in parallel mode.
+ * Arguments are split into ranges, each applied by a single job. Ranges are sized from the cost
+ * of an element measured by previous jobs, so that a job takes about {@value #TARGET_JOB_NANOS} nanoseconds,
+ * but every mapping is split into at least one job per thread. Until the cost is measured,
+ * a mapping is split into {@value #JOBS_PER_THREAD} jobs per thread.
+ *
+ * <p>Workers take jobs of concurrent calls in turns, so a huge mapping does not delay calls started after it.
+ * A call of priority {@code p} takes up to {@code p} jobs per turn.
  */
 public class ParallelMapperImpl implements ParallelMapper {
 
+    /**
+     * Priority of calls that do not specify one: a single job per turn.
+     */
+    public static final int DEFAULT_PRIORITY = 1;
+
+    private static final long TARGET_JOB_NANOS = 100_000;
+    private static final int JOBS_PER_THREAD = 4;
+    private static final double COST_WEIGHT = 0.25;
+
     private final ConcurrentQueue jobs;
     private final List<Thread> workers;
+    private volatile double nanosPerElement;
+    private volatile boolean closed;
 
     /**
      * Construct class with number of maximum threads, that can be used during parallel mapping.
      *
-     * @param threads maximum count of working threads
+     * @param threads maximum count of working threads, positive
+     * @throws IllegalArgumentException if {@code threads} is not positive
      */
     public ParallelMapperImpl(int threads) {
-        this.jobs = new ConcurrentQueue(threads);
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        this.jobs = new ConcurrentQueue();
         this.workers = new ArrayList<>(Collections.nCopies(threads, null));
 
         Runnable workerRun = () -> {
@@ -41,29 +71,157 @@ public class ParallelMapperImpl implements ParallelMapper {
 
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        List<R> result = new ArrayList<>(Collections.nCopies(args.size(), null));
+        return map(f, args, DEFAULT_PRIORITY);
+    }
 
-        List<Job> currentJobs = new ArrayList<>(Collections.nCopies(args.size(), null));
-        ConcurrentCounter counter = new ConcurrentCounter(args.size());
-        for (int i = 0; i < args.size(); i++) {
-            int finalI = i;
-            Job job = new Job(() -> result.set(finalI, f.apply(args.get(finalI))), counter);
-            currentJobs.set(i, job);
-            jobs.push(job);
+    /**
+     * Applies function to arguments as {@link #map(Function, List)}, taking up to {@code priority} jobs per turn.
+     *
+     * @param f        function to apply
+     * @param args     arguments
+     * @param priority number of jobs per turn, positive
+     * @param <T>      type of arguments
+     * @param <R>      type of results
+     * @return results in order of arguments
+     * @throws InterruptedException if interrupted while waiting, the call is cancelled then
+     */
+    public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args, int priority)
+            throws InterruptedException {
+        CompletableFuture<List<R>> future = mapAsync(f, args, priority);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
         }
+    }
 
-        counter.waitUntilEmpty();
+    /**
+     * Applies function to arguments on the workers of this mapper without blocking the caller.
+     * The returned future completes with the results in order of arguments, or with the first exception
+     * thrown by the function, others added as suppressed.
+     * Completing the future otherwise, such as cancelling it, removes the jobs of this call that are not started yet,
+     * and jobs already running stop before their next element.
+     *
+     * @param f    function to apply
+     * @param args arguments
+     * @param <T>  type of arguments
+     * @param <R>  type of results
+     * @return future of the results, failed with {@link IllegalStateException} if the mapper is closed
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args) {
+        return mapAsync(f, args, DEFAULT_PRIORITY);
+    }
 
-        checkJobsForExceptions(currentJobs);
+    /**
+     * Applies function to arguments as {@link #mapAsync(Function, List)}, taking up to {@code priority} jobs per turn,
+     * so latency-sensitive calls finish quickly while huge ones are in progress.
+     *
+     * @param f        function to apply
+     * @param args     arguments
+     * @param priority number of jobs per turn, positive
+     * @param <T>      type of arguments
+     * @param <R>      type of results
+     * @return future of the results
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(
+            Function<? super T, ? extends R> f, List<? extends T> args, int priority
+    ) {
+        if (priority <= 0) {
+            throw new IllegalArgumentException("Priority must be positive");
+        }
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Mapper is closed"));
+        }
+        int size = args.size();
+        List<R> result = new ArrayList<>(Collections.nCopies(size, null));
+        IntConsumer apply = i -> result.set(i, f.apply(args.get(i)));
+
+        int chunk = getChunkSize(size);
+        Call<R> call = new Call<>(result, (size + chunk - 1) / chunk, priority);
+        for (int from = 0; from < size; from += chunk) {
+            Job job = new Job(from, Math.min(from + chunk, size), apply, call);
+            call.jobs.add(job);
+            call.pending.add(job);
+        }
+        if (!call.jobs.isEmpty()) {
+            jobs.push(call);
+            if (closed) {
+                // close may have cleared the queue after the check above and before the push
+                call.future.completeExceptionally(new IllegalStateException("Mapper is closed"));
+            }
+        }
+        call.future.whenComplete((r, e) -> {
+            if (e != null) {
+                jobs.remove(call);
+            }
+        });
+        return call.future;
+    }
+
+    /**
+     * Applies function to arguments as {@link #mapAsync(Function, List)}, failing the call with
+     * {@link java.util.concurrent.TimeoutException} and removing its jobs if it does not complete in time.
+     *
+     * @param f       function to apply
+     * @param args    arguments
+     * @param timeout time to complete the call in
+     * @param unit    unit of the timeout
+     * @param <T>     type of arguments
+     * @param <R>     type of results
+     * @return future of the results
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(
+            Function<? super T, ? extends R> f, List<? extends T> args, long timeout, TimeUnit unit
+    ) {
+        return this.<T, R>mapAsync(f, args).orTimeout(timeout, unit);
+    }
 
-        return result;
+    /**
+     * Returns number of elements of a job of mapping of the given size.
+     */
+    int getChunkSize(int size) {
+        int threads = workers.size();
+        double cost = nanosPerElement;
+        if (cost <= 0) {
+            return Math.max(1, size / (threads * JOBS_PER_THREAD));
+        }
+        int perThread = (int) ((size + threads - 1L) / threads);
+        return (int) Math.max(1, Math.min(perThread, TARGET_JOB_NANOS / cost));
     }
 
-    private void checkJobsForExceptions(List<Job> currentJobs) {
-        RuntimeException exp = null;
+    /**
+     * Updates the moving average of element cost with the mean over the whole mapping, so a job delayed
+     * by a pause or preemption does not shrink the next ranges much.
+     * Updates of concurrent mappings may be lost, which only delays adaptation.
+     */
+    private void recordCost(List<Job> currentJobs) {
+        long nanos = 0;
+        int size = 0;
         for (Job job : currentJobs) {
-            RuntimeException e = job.getException();
-            if (e != null) {
+            nanos += job.getNanos();
+            size += job.to - job.from;
+        }
+        if (size == 0) {
+            return;
+        }
+        double sample = (double) nanos / size;
+        double cost = nanosPerElement;
+        nanosPerElement = cost <= 0 ? sample : cost + COST_WEIGHT * (sample - cost);
+    }
+
+    private static Throwable getException(List<Job> currentJobs) {
+        Throwable exp = null;
+        for (Job job : currentJobs) {
+            for (Throwable e : job.getExceptions()) {
                 if (exp == null) {
                     exp = e;
                 } else {
@@ -71,16 +229,16 @@ public class ParallelMapperImpl implements ParallelMapper {
                 }
             }
         }
-        if (exp != null) {
-            throw exp;
-        }
+        return exp;
     }
 
     /**
-     * Stops all threads. All unfinished mappings leave in undefined state. Interrupting current thread during closing cause undefined behavior.
+     * Stops all threads. Jobs running are completed, unfinished calls fail with {@link IllegalStateException}.
+     * Interrupting current thread during closing cause undefined behavior.
      */
     @Override
     public void close() {
+        closed = true;
         workers.forEach(Thread::interrupt);
         for (Thread worker : workers) {
             try {
@@ -89,87 +247,200 @@ public class ParallelMapperImpl implements ParallelMapper {
                 // ignored
             }
         }
-        jobs.clear();
+        IllegalStateException exception = new IllegalStateException("Mapper is closed");
+        for (Call<?> call : jobs.clear()) {
+            call.future.completeExceptionally(exception);
+        }
     }
 
+    /**
+     * Applies function to a range of arguments. Every element is applied even if others fail,
+     * errors included, so a failing function neither completes the call normally nor stops the worker.
+     * Exceptions and time are read by the last job of the call only after the counter reaches zero,
+     * which orders them after the job, so the job needs no lock.
+     */
     static class Job {
 
-        private final Runnable run;
-        private final ConcurrentCounter counter;
+        private final int from;
+        private final int to;
+        private final IntConsumer apply;
+        private final Call<?> call;
 
-        private RuntimeException exception = null;
+        private List<Throwable> exceptions = List.of();
+        private long nanos;
 
-        private Job(Runnable run, ConcurrentCounter counter) {
-            this.run = run;
-            this.counter = counter;
+        private Job(int from, int to, IntConsumer apply, Call<?> call) {
+            this.from = from;
+            this.to = to;
+            this.apply = apply;
+            this.call = call;
         }
 
-        private synchronized void run() {
+        private void run() {
+            long start = System.nanoTime();
             try {
-                run.run();
-            } catch (RuntimeException e) {
-                exception = e;
+                for (int i = from; i < to && !call.future.isDone(); i++) {
+                    try {
+                        apply.accept(i);
+                    } catch (Throwable e) {
+                        if (exceptions.isEmpty()) {
+                            exceptions = new ArrayList<>();
+                        }
+                        exceptions.add(e);
+                    }
+                }
             } finally {
-                counter.decrement();
+                nanos = System.nanoTime() - start;
+                call.jobDone();
             }
         }
 
-        private synchronized RuntimeException getException() {
-            return this.exception;
+        private long getNanos() {
+            return nanos;
         }
-    }
-
-    static class ConcurrentCounter {
-
-        private int counter;
 
-        private ConcurrentCounter(int counter) {
-            this.counter = counter;
+        private List<Throwable> getExceptions() {
+            return exceptions;
         }
+    }
 
-        private synchronized void decrement() {
-            --counter;
-            this.notify();
+    /**
+     * Single call of {@link #mapAsync(Function, List)}: its results, its jobs, those not taken by workers yet
+     * and the number of them left. The last job to finish completes the future.
+     * Turn credits are used only by the worker that took the call out of the rotation.
+     */
+    private class Call<R> {
+
+        private final List<R> result;
+        private final List<Job> jobs;
+        private final Queue<Job> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger remaining;
+        private final CompletableFuture<List<R>> future = new CompletableFuture<>();
+        private final int priority;
+        private int credits;
+
+        private Call(List<R> result, int jobs, int priority) {
+            this.result = result;
+            this.jobs = new ArrayList<>(jobs);
+            this.remaining = new AtomicInteger(jobs);
+            this.priority = priority;
+            this.credits = priority;
+            if (jobs == 0) {
+                future.complete(result);
+            }
         }
 
-        private synchronized void waitUntilEmpty() throws InterruptedException {
-            while (counter != 0) {
-                this.wait();
+        private void jobDone() {
+            if (remaining.decrementAndGet() != 0 || future.isDone()) {
+                return;
+            }
+            recordCost(jobs);
+            Throwable exception = getException(jobs);
+            if (exception == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(exception);
             }
         }
     }
 
+    /**
+     * Lock-free rotation of calls with pending jobs. A worker takes the call at the head out of the rotation,
+     * takes its next job and puts it back: at the head while it has credits left for this turn,
+     * at the tail with new credits otherwise, so calls take jobs in weighted round-robin.
+     *
+     * <p>Idle workers park and wait in a queue of their own; a call wakes at most one of them per job,
+     * so workers are never woken all at once. A worker rechecks the calls after announcing itself idle
+     * and a pusher checks idle workers after adding a call, so a job is never left with every worker parked.
+     * A worker putting a call back wakes another one, as it may have found the rotation empty meanwhile.
+     */
     static class ConcurrentQueue {
 
-        private int capacity;
-        private final Deque<Job> runs;
+        private final Deque<Call<?>> calls = new ConcurrentLinkedDeque<>();
+        private final Queue<Thread> idle = new ConcurrentLinkedQueue<>();
+
+        private Job pop() throws InterruptedException {
+            Thread current = Thread.currentThread();
+            while (true) {
+                Job run = poll();
+                if (run != null) {
+                    return run;
+                }
+
+                idle.add(current);
+                run = poll();
+                if (run == null) {
+                    LockSupport.park(this);
+                }
+                // no-op if already unparked by a pusher
+                idle.remove(current);
+                if (run != null) {
+                    return run;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
 
-        ConcurrentQueue(int capacity) {
-            this.runs = new ArrayDeque<>();
-            this.capacity = capacity;
+        private Job poll() {
+            Call<?> call;
+            while ((call = calls.poll()) != null) {
+                Job run = call.pending.poll();
+                if (run == null) {
+                    // all jobs taken or removed
+                    continue;
+                }
+                if (!call.pending.isEmpty()) {
+                    if (--call.credits > 0) {
+                        calls.addFirst(call);
+                    } else {
+                        call.credits = call.priority;
+                        calls.addLast(call);
+                    }
+                    wakeOne();
+                }
+                return run;
+            }
+            return null;
         }
 
-        private synchronized Job pop() throws InterruptedException {
-            while (runs.isEmpty()) {
-                this.wait();
+        private void push(Call<?> call) {
+            calls.addLast(call);
+            for (int i = 0; i < call.jobs.size() && wakeOne(); i++) {
+                // wake a worker per job
             }
-            Job run = runs.remove();
-            notifyAll();
-            return run;
         }
 
-        private synchronized void push(Job run) throws InterruptedException {
-            while (runs.size() == capacity) {
-                this.wait();
+        private boolean wakeOne() {
+            Thread worker = idle.poll();
+            if (worker != null) {
+                LockSupport.unpark(worker);
+                return true;
             }
-            runs.push(run);
-            notifyAll();
+            return false;
         }
 
+        /**
+         * Removes jobs of the call that are not taken by workers yet.
+         */
+        private void remove(Call<?> call) {
+            call.pending.clear();
+        }
 
-        private synchronized void clear() {
-            this.capacity = 0;
-            this.runs.clear();
+        /**
+         * Removes all calls with jobs not taken by workers and returns them.
+         */
+        private List<Call<?>> clear() {
+            List<Call<?>> removed = new ArrayList<>();
+            Call<?> call;
+            while ((call = calls.poll()) != null) {
+                if (!call.pending.isEmpty()) {
+                    call.pending.clear();
+                    removed.add(call);
+                }
+            }
+            return removed;
         }
     }
 }
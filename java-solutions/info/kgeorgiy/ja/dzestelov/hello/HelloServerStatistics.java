@@ -0,0 +1,196 @@
+package info.kgeorgiy.ja.dzestelov.hello;
+
+import info.kgeorgiy.ja.dzestelov.util.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class represents request accounting of a Hello server: requests received, responses sent,
+ * responses dropped because they could not be sent and failed receives, together with a histogram
+ * of time from receiving a request to sending its response.
+ * Counters are {@link LongAdder}s, so workers updating them do not contend.
+ *
+ * <p>Requests dropped before the server received them are reported by the operating system:
+ * on Linux, the receive queue size and overflow drops of the server sockets are read from {@code /proc/net/udp}.
+ */
+public class HelloServerStatistics implements HelloServerStatisticsMXBean {
+
+    public static final String OBJECT_NAME = "info.kgeorgiy.ja.dzestelov.hello:type=HelloServerStatistics,port=";
+
+    private static final List<Path> PROC_NET_UDP = List.of(Path.of("/proc/net/udp"), Path.of("/proc/net/udp6"));
+    private static final int RX_QUEUE_COLUMN = 4;
+    private static final int DROPS_COLUMN = 12;
+
+    private final int port;
+    private final LongAdder received = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder receiveErrors = new LongAdder();
+    private final LatencyHistogram processing = new LatencyHistogram();
+    private ObjectName objectName;
+
+    public HelloServerStatistics(int port) {
+        this.port = port;
+    }
+
+    public void received() {
+        received.increment();
+    }
+
+    /**
+     * Counts a response sent the given time after its request was received.
+     */
+    public void sent(long nanos) {
+        sent.increment();
+        processing.record(nanos);
+    }
+
+    /**
+     * Counts a received request left without response.
+     */
+    public void dropped() {
+        dropped.increment();
+    }
+
+    public void receiveFailed() {
+        receiveErrors.increment();
+    }
+
+    /**
+     * Publishes the statistics as a platform MBean named by the server port.
+     * Statistics of a closed server on the same port are replaced.
+     */
+    public synchronized void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME + port);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException ignored) {
+            // statistics are still available through the server
+        }
+    }
+
+    public synchronized void unregister() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException ignored) {
+                // already unregistered
+            }
+            objectName = null;
+        }
+    }
+
+    @Override
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public long getReceived() {
+        return received.sum();
+    }
+
+    @Override
+    public long getSent() {
+        return sent.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getReceiveErrors() {
+        return receiveErrors.sum();
+    }
+
+    @Override
+    public long getInFlight() {
+        return Math.max(0, getReceived() - getSent() - getDropped());
+    }
+
+    @Override
+    public Map<String, Long> getProcessingHistogram() {
+        return processing.toMap();
+    }
+
+    @Override
+    public double getProcessingP50Micros() {
+        return processing.getPercentile(0.5) / 1e3;
+    }
+
+    @Override
+    public double getProcessingP99Micros() {
+        return processing.getPercentile(0.99) / 1e3;
+    }
+
+    @Override
+    public double getProcessingP999Micros() {
+        return processing.getPercentile(0.999) / 1e3;
+    }
+
+    /**
+     * Returns bytes waiting in the receive queues of the server sockets, or {@code -1} if unknown.
+     */
+    @Override
+    public long getReceiveQueueBytes() {
+        return sumSocketColumn(RX_QUEUE_COLUMN);
+    }
+
+    /**
+     * Returns datagrams dropped by the operating system since the server sockets were opened,
+     * mostly because their receive queues were full, or {@code -1} if unknown.
+     */
+    @Override
+    public long getReceiveQueueDrops() {
+        return sumSocketColumn(DROPS_COLUMN);
+    }
+
+    /**
+     * Sums a column of {@code /proc/net/udp} over the sockets bound to the server port.
+     * Queue column holds {@code tx_queue:rx_queue} in hex, drops column is decimal.
+     */
+    private long sumSocketColumn(int column) {
+        String portSuffix = String.format(":%04X", port);
+        long sum = 0;
+        boolean found = false;
+        for (Path table : PROC_NET_UDP) {
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(table);
+            } catch (IOException | SecurityException e) {
+                continue;
+            }
+            for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+                String[] columns = line.trim().split("\\s+");
+                if (columns.length <= DROPS_COLUMN || !columns[1].endsWith(portSuffix)) {
+                    continue;
+                }
+                try {
+                    sum += column == RX_QUEUE_COLUMN
+                            ? Long.parseLong(columns[column].substring(columns[column].indexOf(':') + 1), 16)
+                            : Long.parseLong(columns[column]);
+                    found = true;
+                } catch (NumberFormatException ignored) {
+                    // unknown format
+                }
+            }
+        }
+        return found ? sum : -1;
+    }
+}
@@ -0,0 +1,33 @@
+package info.kgeorgiy.ja.dzestelov.hello;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link HelloServerStatistics}.
+ */
+public interface HelloServerStatisticsMXBean {
+
+    int getPort();
+
+    long getReceived();
+
+    long getSent();
+
+    long getDropped();
+
+    long getReceiveErrors();
+
+    long getInFlight();
+
+    Map<String, Long> getProcessingHistogram();
+
+    double getProcessingP50Micros();
+
+    double getProcessingP99Micros();
+
+    double getProcessingP999Micros();
+
+    long getReceiveQueueBytes();
+
+    long getReceiveQueueDrops();
+}
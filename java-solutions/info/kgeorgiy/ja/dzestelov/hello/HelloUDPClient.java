@@ -3,24 +3,72 @@ package info.kgeorgiy.ja.dzestelov.hello;
 import info.kgeorgiy.java.advanced.hello.HelloClient;
 
 import java.io.IOException;
+import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class HelloUDPClient implements HelloClient {
 
     private static final int SOCKET_TIMEOUT_MILLISECONDS = 200;
+    private static final int MIN_TIMEOUT_MILLISECONDS = 5;
+    private static final int MAX_TIMEOUT_MILLISECONDS = 2000;
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private final boolean virtualThreads;
+    private final int window;
+    private final Listener listener;
     private ExecutorService executorService;
     private InetSocketAddress socketAddress;
 
+    /**
+     * Creates client sending requests from a fixed pool of platform threads.
+     */
+    public HelloUDPClient() {
+        this(false, 1);
+    }
+
+    /**
+     * Creates client sending requests from a fixed pool of platform threads or,
+     * if {@code virtualThreads} is set, from a virtual thread per requester.
+     * Virtual requesters are named as platform ones, so requests are the same in both modes.
+     *
+     * <p>Every requester keeps up to {@code window} requests in flight and matches responses to them
+     * by request number. Requests are retransmitted after a timeout adapted to the measured round-trip times.
+     *
+     * @param virtualThreads whether to run every requester on its own virtual thread
+     * @param window         maximal number of requests in flight per requester
+     * @throws UnsupportedOperationException if virtual threads are requested but not supported by the runtime
+     */
+    public HelloUDPClient(boolean virtualThreads, int window) {
+        this(virtualThreads, window, NO_LISTENER);
+    }
+
+    /**
+     * Creates client as {@link #HelloUDPClient(boolean, int)} reporting its requests to the given listener.
+     *
+     * @param listener listener of requests, called from requester threads
+     */
+    public HelloUDPClient(boolean virtualThreads, int window, Listener listener) {
+        if (virtualThreads) {
+            VirtualThreads.checkSupported();
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        this.virtualThreads = virtualThreads;
+        this.window = window;
+        this.listener = Objects.requireNonNull(listener);
+    }
+
     public void run(String host, int port, String prefix, int threads, int requests) {
         try {
             socketAddress = new InetSocketAddress(host, port);
@@ -31,36 +79,19 @@ public class HelloUDPClient implements HelloClient {
             throw new UDPClientException("Invalid hostname or invalid port", e);
         }
 
-        executorService = Executors.newFixedThreadPool(threads, HelloThreadFactory.getFactory());
+        executorService = virtualThreads
+                ? VirtualThreads.newThreadPerTaskExecutor("")
+                : Executors.newFixedThreadPool(threads, HelloThreadFactory.getFactory());
 
         // :NOTE: for (int i = 0; i < threads; i++) {
 //            executorService.submit()
 //        }
 
         Runnable runnable = () -> {
-            for (int n = 0; n < requests; n++) {
-                String thread = Thread.currentThread().getName();
-                String request = (prefix + thread + "_" + n);
-
-                try (DatagramSocket socket = new DatagramSocket()) {
-                    socket.setSoTimeout(SOCKET_TIMEOUT_MILLISECONDS);
-                    do {
-                        try {
-                            socket.send(UDPUtils.getRequestPacket(request, socketAddress));
-                            System.out.println("Request: " + request + " sent.");
-
-                            String response = UDPUtils.getResponseString(socket);
-                            List<String> numbers = getNumbers(response);
-                            if (numbers.size() == 2 && numbers.get(0).equals(thread) && numbers.get(1).equals(String.valueOf(n))) {
-                                System.out.println("Received: " + response);
-                                break;
-                            }
-                        } catch (IOException ignored) {
-                        }
-                    } while (!socket.isClosed() && !Thread.currentThread().isInterrupted());
-                } catch (SocketException e) {
-                    throw new UDPClientException("Socket could not be opened", e);
-                }
+            try (DatagramSocket socket = new DatagramSocket()) {
+                new Requester(socket, prefix, Thread.currentThread().getName(), requests).run();
+            } catch (SocketException e) {
+                throw new UDPClientException("Socket could not be opened", e);
             }
         };
 
@@ -85,13 +116,156 @@ public class HelloUDPClient implements HelloClient {
         }
     }
 
-    private List<String> getNumbers(String str) {
-        Matcher m = Pattern.compile("\\d+").matcher(str);
-        List<String> result = new ArrayList<>();
-        while (m.find()) {
-            result.add(m.group());
+    /**
+     * Sends requests of one thread over a single socket, keeping up to {@link #window} of them in flight.
+     * Requests {@code [base, next)} are sent, and the flags of their slots, request number modulo window,
+     * tell which of them are answered.
+     */
+    private class Requester {
+        private final DatagramSocket socket;
+        private final String prefix;
+        private final String thread;
+        private final int threadNumber;
+        private final int requests;
+        private final RetransmissionTimer timer = new RetransmissionTimer(
+                SOCKET_TIMEOUT_MILLISECONDS, MIN_TIMEOUT_MILLISECONDS, MAX_TIMEOUT_MILLISECONDS
+        );
+
+        private final boolean[] answered = new boolean[window];
+        private final boolean[] retransmitted = new boolean[window];
+        private final long[] sentAt = new long[window];
+        private final long[] deadlines = new long[window];
+        private final String[] requestStrings = new String[window];
+        private final DatagramPacket[] requestPackets = new DatagramPacket[window];
+        private final DatagramPacket responsePacket;
+        private final ByteBuffer response;
+        private int base;
+        private int next;
+
+        private Requester(DatagramSocket socket, String prefix, String thread, int requests) throws SocketException {
+            this.socket = socket;
+            this.prefix = prefix;
+            this.thread = thread;
+            this.threadNumber = parseThreadNumber(thread);
+            this.requests = requests;
+            this.responsePacket = UDPUtils.newReceivePacket(socket);
+            this.response = ByteBuffer.wrap(responsePacket.getData());
+        }
+
+        private void run() {
+            while (base < requests && !socket.isClosed() && !Thread.currentThread().isInterrupted()) {
+                while (next < requests && next - base < window) {
+                    send(next++, false);
+                }
+
+                int oldest = getOldestUnanswered();
+                long wait = deadlines[oldest % window] - System.nanoTime();
+                if (wait <= 0) {
+                    timer.backoff();
+                    send(oldest, true);
+                    continue;
+                }
+
+                try {
+                    socket.setSoTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+                    UDPUtils.receive(socket, responsePacket);
+                    accept();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        private static int parseThreadNumber(String thread) {
+            try {
+                int number = Integer.parseInt(thread);
+                return thread.equals(String.valueOf(number)) ? number : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private int getOldestUnanswered() {
+            int oldest = base;
+            for (int n = base; n < next; n++) {
+                if (!answered[n % window] && deadlines[n % window] - deadlines[oldest % window] < 0) {
+                    oldest = n;
+                }
+            }
+            return oldest;
+        }
+
+        /**
+         * Sends request from its slot. The packet of a slot is created once and refilled only when
+         * the slot moves to a new request, so retransmissions send the same packet again.
+         */
+        private void send(int n, boolean retransmit) {
+            int slot = n % window;
+            if (!retransmit) {
+                String request = prefix + thread + "_" + n;
+                requestStrings[slot] = request;
+                if (requestPackets[slot] == null) {
+                    requestPackets[slot] = UDPUtils.getRequestPacket(request, socketAddress);
+                } else {
+                    UDPUtils.setRequest(requestPackets[slot], request);
+                }
+                answered[slot] = false;
+                sentAt[slot] = System.nanoTime();
+            }
+            retransmitted[slot] = retransmit;
+            deadlines[slot] = System.nanoTime() + timer.getTimeout();
+            try {
+                socket.send(requestPackets[slot]);
+                listener.sent(threadNumber, n, retransmit);
+                System.out.println("Request: " + requestStrings[slot] + " sent.");
+            } catch (IOException ignored) {
+                // retransmitted on timeout
+            }
+        }
+
+        /**
+         * Validates the received bytes in place, so a response is decoded only to be printed.
+         */
+        private void accept() {
+            response.limit(responsePacket.getOffset() + responsePacket.getLength()).position(responsePacket.getOffset());
+            int n = UDPUtils.getRequestNumber(response, threadNumber);
+            if (n < base || n >= next || answered[n % window]) {
+                return;
+            }
+
+            int slot = n % window;
+            answered[slot] = true;
+            long nanos = System.nanoTime() - sentAt[slot];
+            if (!retransmitted[slot]) {
+                timer.sample(nanos);
+            }
+            listener.answered(threadNumber, n, nanos);
+            System.out.println("Received: " + UDPUtils.getResponseString(responsePacket));
+            while (base < next && answered[base % window]) {
+                base++;
+            }
+        }
+    }
+
+    /**
+     * Class represents listener of requests sent by a client, for example to measure their latencies.
+     * Threads are identified by their numbers in requests.
+     */
+    public interface Listener {
+        /**
+         * Called after a request is sent.
+         *
+         * @param retransmission whether the request was sent before
+         */
+        default void sent(int thread, int request, boolean retransmission) {
+        }
+
+        /**
+         * Called on the first valid response to a request.
+         *
+         * @param nanos time from the first send of the request
+         */
+        default void answered(int thread, int request, long nanos) {
         }
-        return result;
     }
 
     private static class HelloThreadFactory implements ThreadFactory {
@@ -0,0 +1,185 @@
+package info.kgeorgiy.ja.dzestelov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Class represents UDP client driving all request streams from the calling thread
+ * over non-blocking {@link DatagramChannel}s and a single {@link Selector}.
+ * Stream {@code i} sends the same requests as thread {@code i} of {@link HelloUDPClient}
+ * and retransmits its request if no valid response arrives within the timeout.
+ */
+public class HelloUDPNonblockingClient implements HelloClient {
+
+    private static final int SOCKET_TIMEOUT_MILLISECONDS = 200;
+
+    /**
+     * Sends requests to the server and prints responses.
+     *
+     * @param host     server host
+     * @param port     server port
+     * @param prefix   request prefix
+     * @param threads  number of concurrent request streams
+     * @param requests number of requests per stream
+     */
+    @Override
+    public void run(String host, int port, String prefix, int threads, int requests) {
+        InetSocketAddress socketAddress;
+        try {
+            socketAddress = new InetSocketAddress(host, port);
+            if (socketAddress.isUnresolved()) {
+                throw new UDPClientException("Hostname couldn't be resolved into InetAddress");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new UDPClientException("Invalid hostname or invalid port", e);
+        }
+        if (requests <= 0) {
+            return;
+        }
+
+        try (Selector selector = Selector.open()) {
+            try {
+                for (int i = 0; i < threads; i++) {
+                    DatagramChannel channel = DatagramChannel.open();
+                    channel.configureBlocking(false);
+                    channel.connect(socketAddress);
+                    Stream stream = new Stream(prefix, i);
+                    stream.key = channel.register(selector, SelectionKey.OP_WRITE, stream);
+                }
+                new Multiplexer(selector, requests).run();
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+            }
+        } catch (IOException e) {
+            throw new UDPClientException("Channel could not be used", e);
+        }
+    }
+
+    private static class Multiplexer {
+        private final Selector selector;
+        private final int requests;
+        private final Queue<Timeout> timeouts = new ArrayDeque<>();
+        private ByteBuffer buffer;
+        private int active;
+
+        private Multiplexer(Selector selector, int requests) {
+            this.selector = selector;
+            this.requests = requests;
+            this.active = selector.keys().size();
+        }
+
+        private void run() throws IOException {
+            while (active > 0 && !Thread.currentThread().isInterrupted()) {
+                Timeout next = timeouts.peek();
+                long timeout = next == null ? 0 : Math.max(1, (next.deadline - System.nanoTime()) / 1_000_000);
+                selector.select(key -> {
+                    try {
+                        if (key.isWritable()) {
+                            send(key);
+                        } else if (key.isReadable()) {
+                            receive(key);
+                        }
+                    } catch (IOException ignored) {
+                        // lost request, retransmitted on timeout
+                    }
+                }, timeout);
+                retransmitExpired();
+            }
+        }
+
+        private void send(SelectionKey key) throws IOException {
+            Stream stream = (Stream) key.attachment();
+            String request = stream.getRequest();
+            if (((DatagramChannel) key.channel()).write(UDPUtils.getRequestBuffer(request)) == 0) {
+                return;
+            }
+            System.out.println("Request: " + request + " sent.");
+
+            stream.attempt++;
+            timeouts.add(new Timeout(stream, System.nanoTime() + SOCKET_TIMEOUT_MILLISECONDS * 1_000_000L));
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private void receive(SelectionKey key) throws IOException {
+            DatagramChannel channel = (DatagramChannel) key.channel();
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(UDPUtils.getReceiveSize(channel.socket()));
+            }
+            if (channel.read(buffer.clear()) <= 0) {
+                return;
+            }
+
+            Stream stream = (Stream) key.attachment();
+            if (UDPUtils.getRequestNumber(buffer.flip(), stream.index) != stream.request) {
+                return;
+            }
+            System.out.println("Received: " + UDPUtils.getResponseString(buffer));
+
+            stream.attempt++;
+            if (++stream.request == requests) {
+                key.cancel();
+                channel.close();
+                active--;
+            } else {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+
+        /**
+         * Sends again requests left without response for the whole timeout.
+         * Timeouts are equal, so deadlines expire in the order requests were sent.
+         * Timeouts of requests answered or resent since are skipped.
+         */
+        private void retransmitExpired() {
+            long now = System.nanoTime();
+            Timeout timeout;
+            while ((timeout = timeouts.peek()) != null && timeout.deadline - now <= 0) {
+                timeouts.remove();
+                Stream stream = timeout.stream;
+                if (stream.attempt == timeout.attempt && stream.key.isValid()) {
+                    stream.attempt++;
+                    stream.key.interestOps(SelectionKey.OP_WRITE);
+                }
+            }
+        }
+    }
+
+    private static class Stream {
+        private final String prefix;
+        private final int index;
+        private SelectionKey key;
+        private int request;
+        private long attempt;
+
+        private Stream(String prefix, int index) {
+            this.prefix = prefix;
+            this.index = index;
+        }
+
+        private String getRequest() {
+            return prefix + index + "_" + request;
+        }
+    }
+
+    private static class Timeout {
+        private final Stream stream;
+        private final long attempt;
+        private final long deadline;
+
+        private Timeout(Stream stream, long deadline) {
+            this.stream = stream;
+            this.attempt = stream.attempt;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package info.kgeorgiy.ja.dzestelov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Class represents UDP server on a non-blocking {@link DatagramChannel}.
+ * One selector thread receives requests and sends responses, workers only build responses.
+ * Responses wait for the channel to become writable in a bounded queue; while it is full,
+ * the server stops receiving, so excess requests are dropped by the operating system.
+ *
+ * <p>Requests are received into pooled direct buffers after room for the {@code "Hello, "} prefix,
+ * and responses are sent from the same buffers, so serving a request copies only the prefix.
+ */
+public class HelloUDPNonblockingServer implements HelloServer {
+
+    private static final int REQUESTS_PER_THREAD = 16;
+
+    private boolean isStarted = false;
+    private DatagramChannel channel;
+    private Selector selector;
+    private ExecutorService workers;
+    private Thread selectorThread;
+
+    private BlockingQueue<Exchange> free;
+    private BlockingQueue<Exchange> responses;
+
+    /**
+     * Starts a new Hello server.
+     * This method should return immediately.
+     *
+     * @param port    server port.
+     * @param threads number of working threads.
+     */
+    @Override
+    public void start(int port, int threads) {
+        if (isStarted) {
+            return;
+        } else {
+            isStarted = true;
+        }
+
+        final int receiveSize;
+        try {
+            selector = Selector.open();
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(port));
+            channel.register(selector, SelectionKey.OP_READ);
+            receiveSize = UDPUtils.getReceiveSize(channel.socket());
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UDPClientException("Cannot create channel", e);
+        }
+
+        int capacity = threads * REQUESTS_PER_THREAD;
+        free = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            free.add(new Exchange(receiveSize));
+        }
+        responses = new ArrayBlockingQueue<>(capacity);
+        workers = Executors.newFixedThreadPool(threads);
+        selectorThread = new Thread(this::select, "hello-selector");
+        selectorThread.start();
+    }
+
+    private void select() {
+        try {
+            while (!Thread.currentThread().isInterrupted() && channel.isOpen()) {
+                SelectionKey key = channel.keyFor(selector);
+                key.interestOps((free.isEmpty() ? 0 : SelectionKey.OP_READ)
+                        | (responses.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+                selector.select();
+                selector.selectedKeys().clear();
+
+                if (key.isValid() && key.isWritable()) {
+                    send();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    receive();
+                }
+            }
+        } catch (IOException | ClosedSelectorException | CancelledKeyException ignored) {
+            // server is closing
+        }
+    }
+
+    private void receive() throws IOException {
+        Exchange exchange;
+        while ((exchange = free.peek()) != null) {
+            exchange.address = channel.receive(exchange.buffer.clear().position(UDPUtils.HELLO_PREFIX.length));
+            if (exchange.address == null) {
+                return;
+            }
+            free.remove();
+            try {
+                workers.execute(exchange);
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    private void send() throws IOException {
+        Exchange exchange;
+        while ((exchange = responses.peek()) != null) {
+            if (channel.send(exchange.buffer, exchange.address) == 0) {
+                return;
+            }
+            responses.remove();
+            free.add(exchange);
+        }
+    }
+
+    /**
+     * Stops server and deallocates all resources.
+     */
+    @Override
+    public void close() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        closeQuietly();
+        if (selectorThread != null) {
+            selectorThread.interrupt();
+            try {
+                selectorThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private class Exchange implements Runnable {
+        private final ByteBuffer buffer;
+        private SocketAddress address;
+
+        private Exchange(int receiveSize) {
+            this.buffer = ByteBuffer.allocateDirect(UDPUtils.HELLO_PREFIX.length + receiveSize);
+        }
+
+        /**
+         * Turns the received request into the response.
+         */
+        @Override
+        public void run() {
+            buffer.flip().put(0, UDPUtils.HELLO_PREFIX);
+            responses.add(this);
+            selector.wakeup();
+        }
+    }
+}
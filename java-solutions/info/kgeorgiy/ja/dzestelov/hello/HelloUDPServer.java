@@ -6,8 +6,12 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.IntStream;
 
 /**
@@ -17,16 +21,43 @@ public class HelloUDPServer implements HelloServer {
 
     private static final int SOCKET_TIMEOUT = 1000;
 
+    private final boolean virtualThreads;
+    private final Queue<DatagramPacket> packets = new ConcurrentLinkedQueue<>();
     private boolean isStarted = false;
     private DatagramSocket socket;
+    private int receiveSize;
     private ExecutorService workers;
+    private HelloServerStatistics statistics;
+
+    /**
+     * Creates server answering on a fixed pool of platform threads.
+     */
+    public HelloUDPServer() {
+        this(false);
+    }
+
+    /**
+     * Creates server answering on a fixed pool of platform threads or,
+     * if {@code virtualThreads} is set, on a new virtual thread per request.
+     * A virtual thread receives a single request and answers it, starting the thread
+     * receiving the next request in between, so slow answers do not hold receiving back.
+     *
+     * @param virtualThreads whether to answer every request on its own virtual thread
+     * @throws UnsupportedOperationException if virtual threads are requested but not supported by the runtime
+     */
+    public HelloUDPServer(boolean virtualThreads) {
+        if (virtualThreads) {
+            VirtualThreads.checkSupported();
+        }
+        this.virtualThreads = virtualThreads;
+    }
 
     /**
      * Starts a new Hello server.
      * This method should return immediately.
      *
      * @param port    server port.
-     * @param threads number of working threads.
+     * @param threads number of working threads, receiving threads in the virtual thread mode.
      */
     @Override
     public void start(int port, int threads) {
@@ -40,26 +71,103 @@ public class HelloUDPServer implements HelloServer {
         try {
             socket = new DatagramSocket(port);
             socket.setSoTimeout(SOCKET_TIMEOUT);
+            receiveSize = UDPUtils.getReceiveSize(socket);
         } catch (SocketException e) {
             throw new UDPClientException("Cannot create socket", e);
         }
 
-        workers = Executors.newFixedThreadPool(threads);
+        statistics = new HelloServerStatistics(socket.getLocalPort());
+        statistics.register();
+        workers = virtualThreads
+                ? VirtualThreads.newThreadPerTaskExecutor("hello-server-")
+                : Executors.newFixedThreadPool(threads);
 
         IntStream.range(0, threads)
-                .forEach(n -> workers.submit(() -> {
-                    while (!socket.isClosed() && !Thread.currentThread().isInterrupted()) {
-                        try {
-                            DatagramPacket request = UDPUtils.getResponsePacket(socket);
-                            String requestString = UDPUtils.getResponseString(request);
-
-                            DatagramPacket packet = UDPUtils.getRequestPacket("Hello, " + requestString, request.getSocketAddress());
-                            socket.send(packet);
-                        } catch (IOException ignored) {
-                        }
-                    }
-                }));
+                .forEach(n -> workers.submit(virtualThreads ? this::serveVirtual : this::serve));
+    }
+
+    private void serve() {
+        DatagramPacket request;
+        try {
+            request = UDPUtils.newReceivePacket(socket);
+        } catch (SocketException e) {
+            return;
+        }
+        DatagramPacket response = UDPUtils.newResponsePacket(request.getLength());
+
+        while (receive(request)) {
+            long start = System.nanoTime();
+            UDPUtils.setHelloResponse(request, response);
+            send(response, start);
+        }
+    }
+
+    /**
+     * Receives the next request, counting it.
+     *
+     * @return {@code false} if the server is closing
+     */
+    private boolean receive(DatagramPacket request) {
+        while (!socket.isClosed() && !Thread.currentThread().isInterrupted()) {
+            try {
+                UDPUtils.receive(socket, request);
+                statistics.received();
+                return true;
+            } catch (SocketTimeoutException ignored) {
+                // check whether the server is closing
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    statistics.receiveFailed();
+                }
+            }
+        }
+        return false;
+    }
+
+    private void send(DatagramPacket response, long receivedAt) {
+        try {
+            socket.send(response);
+            statistics.sent(System.nanoTime() - receivedAt);
+        } catch (IOException e) {
+            statistics.dropped();
+        }
+    }
+
+    /**
+     * Receives and answers a single request, starting a new virtual thread to receive the next one before answering.
+     * The request is received after the {@code "Hello, "} prefix and answered from the same packet,
+     * returned to the pool after the response is sent.
+     */
+    private void serveVirtual() {
+        DatagramPacket packet = packets.poll();
+        if (packet == null) {
+            packet = UDPUtils.newHelloPacket(receiveSize);
+        }
+        if (!receive(packet)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            workers.execute(this::serveVirtual);
+        } catch (RejectedExecutionException ignored) {
+            // the server is closing
+        }
+        UDPUtils.setHelloResponse(packet);
+        send(packet, start);
+        UDPUtils.resetHelloPacket(packet);
+        packets.add(packet);
     }
+
+    /**
+     * Returns request accounting of the running server, also published as a platform MBean.
+     *
+     * @return statistics, or {@code null} if the server was not started
+     */
+    public HelloServerStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Stops server and deallocates all resources.
      */
@@ -67,5 +175,6 @@ public class HelloUDPServer implements HelloServer {
     public void close() {
         workers.shutdownNow();
         socket.close();
+        statistics.unregister();
     }
 }
@@ -0,0 +1,193 @@
+package info.kgeorgiy.ja.dzestelov.hello;
+
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class represents UDP server with a socket per thread. All sockets are bound to the same port
+ * with {@link StandardSocketOptions#SO_REUSEPORT}, so the operating system spreads clients over them
+ * and threads never contend on a shared socket.
+ *
+ * <p>Every shard thread drains up to {@value #BATCH_SIZE} requests per wakeup of its selector
+ * into its own direct buffers and then sends all their responses, as {@code recvmmsg}-style
+ * batching is not available in Java.
+ */
+public class HelloUDPShardedServer implements HelloServer {
+
+    private static final int BATCH_SIZE = 32;
+
+    private boolean isStarted = false;
+    private final List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Returns whether sockets of this platform may share a port.
+     */
+    public static boolean isSupported() {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            return channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts a new Hello server.
+     * This method should return immediately.
+     *
+     * @param port    server port.
+     * @param threads number of shards, each with its own socket and thread.
+     * @throws UnsupportedOperationException if sockets of this platform cannot share a port
+     */
+    @Override
+    public void start(int port, int threads) {
+        if (isStarted) {
+            return;
+        }
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("SO_REUSEPORT is not supported on this platform");
+        }
+        isStarted = true;
+
+        try {
+            // shards of an ephemeral port share the port chosen for the first one
+            Shard first = new Shard(port);
+            shards.add(first);
+            int boundPort = first.getPort();
+            for (int i = 1; i < threads; i++) {
+                shards.add(new Shard(boundPort));
+            }
+        } catch (IOException e) {
+            shards.forEach(Shard::closeQuietly);
+            shards.clear();
+            throw new UDPClientException("Cannot create channel", e);
+        }
+        for (int i = 0; i < shards.size(); i++) {
+            Thread thread = new Thread(shards.get(i), "hello-shard-" + i);
+            shards.get(i).thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops server and deallocates all resources.
+     */
+    @Override
+    public void close() {
+        shards.forEach(Shard::closeQuietly);
+        for (Shard shard : shards) {
+            if (shard.thread != null) {
+                shard.thread.interrupt();
+                try {
+                    shard.thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        shards.clear();
+    }
+
+    /**
+     * Socket of a single thread. Responses are built in place of requests, received after room
+     * for the {@code "Hello, "} prefix. Responses of a batch that could not be sent yet wait
+     * for the channel to become writable, and nothing is received meanwhile.
+     */
+    private static class Shard implements Runnable {
+        private final DatagramChannel channel;
+        private final Selector selector;
+        private final ByteBuffer[] buffers = new ByteBuffer[BATCH_SIZE];
+        private final SocketAddress[] addresses = new SocketAddress[BATCH_SIZE];
+        private Thread thread;
+        private int sent;
+        private int received;
+
+        private Shard(int port) throws IOException {
+            channel = DatagramChannel.open();
+            Selector opened = null;
+            try {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                channel.configureBlocking(false);
+                channel.bind(new InetSocketAddress(port));
+                opened = Selector.open();
+                channel.register(opened, SelectionKey.OP_READ);
+                int receiveSize = UDPUtils.getReceiveSize(channel.socket());
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    buffers[i] = ByteBuffer.allocateDirect(UDPUtils.HELLO_PREFIX.length + receiveSize);
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                if (opened != null) {
+                    opened.close();
+                }
+                channel.close();
+                throw e;
+            }
+            selector = opened;
+        }
+
+        private int getPort() throws IOException {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        }
+
+        @Override
+        public void run() {
+            try {
+                SelectionKey key = channel.keyFor(selector);
+                while (!Thread.currentThread().isInterrupted() && channel.isOpen()) {
+                    selector.select();
+                    selector.selectedKeys().clear();
+                    if (sent == received) {
+                        receive();
+                    }
+                    send();
+                    key.interestOps(sent == received ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+                }
+            } catch (IOException | ClosedSelectorException ignored) {
+                // server is closing
+            }
+        }
+
+        private void receive() throws IOException {
+            sent = 0;
+            received = 0;
+            while (received < BATCH_SIZE) {
+                ByteBuffer buffer = buffers[received];
+                addresses[received] = channel.receive(buffer.clear().position(UDPUtils.HELLO_PREFIX.length));
+                if (addresses[received] == null) {
+                    return;
+                }
+                buffer.flip().put(0, UDPUtils.HELLO_PREFIX);
+                received++;
+            }
+        }
+
+        private void send() throws IOException {
+            while (sent < received) {
+                if (channel.send(buffers[sent], addresses[sent]) == 0) {
+                    return;
+                }
+                addresses[sent++] = null;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                if (selector != null) {
+                    selector.close();
+                }
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package info.kgeorgiy.ja.dzestelov.hello;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retransmission timeout estimated from round-trip times as in RFC 6298:
+ * {@code RTO = SRTT + max(G, 4 * RTTVAR)}, doubled on every timeout until the next sample.
+ * Callers are expected to follow Karn's algorithm and never sample retransmitted requests.
+ */
+class RetransmissionTimer {
+
+    private static final long GRANULARITY = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long minTimeout;
+    private final long maxTimeout;
+    private long smoothed = -1;
+    private long variation;
+    private long timeout;
+
+    /**
+     * Creates timer with the given timeouts in milliseconds.
+     *
+     * @param initial timeout before the first sample
+     * @param min     lower bound of the timeout
+     * @param max     upper bound of the timeout, also for backoff
+     */
+    RetransmissionTimer(long initial, long min, long max) {
+        this.minTimeout = TimeUnit.MILLISECONDS.toNanos(min);
+        this.maxTimeout = TimeUnit.MILLISECONDS.toNanos(max);
+        this.timeout = clamp(TimeUnit.MILLISECONDS.toNanos(initial));
+    }
+
+    /**
+     * Updates estimation with round-trip time of a request sent once.
+     *
+     * @param rtt round-trip time in nanoseconds
+     */
+    void sample(long rtt) {
+        if (smoothed < 0) {
+            smoothed = rtt;
+            variation = rtt / 2;
+        } else {
+            variation += (Math.abs(smoothed - rtt) - variation) / 4;
+            smoothed += (rtt - smoothed) / 8;
+        }
+        timeout = clamp(smoothed + Math.max(GRANULARITY, 4 * variation));
+    }
+
+    /**
+     * Doubles the timeout after a request timed out.
+     */
+    void backoff() {
+        timeout = clamp(2 * timeout);
+    }
+
+    /**
+     * Returns current timeout in nanoseconds.
+     */
+    long getTimeout() {
+        return timeout;
+    }
+
+    private long clamp(long value) {
+        return Math.max(minTimeout, Math.min(maxTimeout, value));
+    }
+}
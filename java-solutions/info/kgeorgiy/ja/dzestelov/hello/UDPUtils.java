@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
@@ -13,6 +15,8 @@ class UDPUtils {
 
     private static final int CLOSE_TIMEOUT_MILLISECONDS = 10000;
     private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+    private static final int MAX_DATAGRAM_SIZE = 65507;
+    static final byte[] HELLO_PREFIX = "Hello, ".getBytes(DEFAULT_CHARSET);
 
     static DatagramPacket getRequestPacket(String request, SocketAddress socketAddress) {
         return getRequestPacket(request, socketAddress, DEFAULT_CHARSET);
@@ -23,6 +27,13 @@ class UDPUtils {
         return new DatagramPacket(requestBuffer, requestBuffer.length, socketAddress);
     }
 
+    /**
+     * Replaces data of the request packet, keeping its address.
+     */
+    static void setRequest(DatagramPacket packet, String request) {
+        packet.setData(request.getBytes(DEFAULT_CHARSET));
+    }
+
     static String getResponseString(DatagramSocket socket) throws IOException {
         return getResponseString(socket, DEFAULT_CHARSET);
     }
@@ -39,13 +50,136 @@ class UDPUtils {
         return new String(packet.getData(), packet.getOffset(), packet.getLength(), charset);
     }
 
+    static ByteBuffer getRequestBuffer(String request) {
+        return ByteBuffer.wrap(request.getBytes(DEFAULT_CHARSET));
+    }
+
+    static String getResponseString(ByteBuffer buffer) {
+        return DEFAULT_CHARSET.decode(buffer).toString();
+    }
+
     static DatagramPacket getResponsePacket(DatagramSocket socket) throws IOException {
-        int maxSize = socket.getReceiveBufferSize();
-        DatagramPacket receive = new DatagramPacket(new byte[maxSize], maxSize);
+        DatagramPacket receive = newReceivePacket(socket);
         socket.receive(receive);
         return receive;
     }
 
+    /**
+     * Returns size of buffers able to hold any datagram received by the socket.
+     */
+    static int getReceiveSize(DatagramSocket socket) throws SocketException {
+        return Math.min(socket.getReceiveBufferSize(), MAX_DATAGRAM_SIZE);
+    }
+
+    /**
+     * Creates packet to be reused by {@link #receive(DatagramSocket, DatagramPacket)}.
+     */
+    static DatagramPacket newReceivePacket(DatagramSocket socket) throws SocketException {
+        int size = getReceiveSize(socket);
+        return new DatagramPacket(new byte[size], size);
+    }
+
+    /**
+     * Receives datagram into the packet, restoring its length shrunk by the previous receive.
+     */
+    static void receive(DatagramSocket socket, DatagramPacket packet) throws IOException {
+        packet.setLength(packet.getData().length - packet.getOffset());
+        socket.receive(packet);
+    }
+
+    /**
+     * Creates packet to be reused by {@link #setHelloResponse(DatagramPacket, DatagramPacket)}
+     * for requests received into packets of the given size.
+     */
+    static DatagramPacket newResponsePacket(int requestSize) {
+        byte[] buffer = new byte[HELLO_PREFIX.length + requestSize];
+        System.arraycopy(HELLO_PREFIX, 0, buffer, 0, HELLO_PREFIX.length);
+        return new DatagramPacket(buffer, buffer.length);
+    }
+
+    /**
+     * Fills the response packet with the request prefixed by {@code "Hello, "} and addresses it to the sender.
+     * The prefix is already written by {@link #newResponsePacket(int)}, so only the request bytes are copied.
+     */
+    static void setHelloResponse(DatagramPacket request, DatagramPacket response) {
+        System.arraycopy(request.getData(), request.getOffset(), response.getData(), HELLO_PREFIX.length, request.getLength());
+        response.setLength(HELLO_PREFIX.length + request.getLength());
+        response.setSocketAddress(request.getSocketAddress());
+    }
+
+    /**
+     * Creates packet receiving requests after the {@code "Hello, "} prefix,
+     * so that it is answered in place by {@link #setHelloResponse(DatagramPacket)}.
+     */
+    static DatagramPacket newHelloPacket(int requestSize) {
+        byte[] buffer = new byte[HELLO_PREFIX.length + requestSize];
+        System.arraycopy(HELLO_PREFIX, 0, buffer, 0, HELLO_PREFIX.length);
+        return new DatagramPacket(buffer, HELLO_PREFIX.length, requestSize);
+    }
+
+    /**
+     * Turns request received into packet of {@link #newHelloPacket(int)} into its response, addressed to the sender.
+     */
+    static void setHelloResponse(DatagramPacket packet) {
+        packet.setData(packet.getData(), 0, HELLO_PREFIX.length + packet.getLength());
+    }
+
+    /**
+     * Restores packet answered by {@link #setHelloResponse(DatagramPacket)} to receive the next request.
+     */
+    static void resetHelloPacket(DatagramPacket packet) {
+        byte[] buffer = packet.getData();
+        packet.setData(buffer, HELLO_PREFIX.length, buffer.length - HELLO_PREFIX.length);
+    }
+
+    /**
+     * Returns request number of a response to the given thread: the second of exactly two groups of ASCII digits
+     * in the remaining bytes of the buffer, if the first one is the thread number. Groups are compared
+     * as decimal strings, so groups with leading zeros or not fitting in {@code int} never match.
+     * ASCII digits never occur inside multibyte UTF-8 sequences, so bytes are scanned without decoding.
+     *
+     * @return request number, or {@code -1} if the response does not match
+     */
+    static int getRequestNumber(ByteBuffer response, int thread) {
+        if (thread < 0) {
+            return -1;
+        }
+        int groups = 0;
+        int first = -1;
+        int second = -1;
+        long value = 0;
+        int length = 0;
+        int limit = response.limit();
+        for (int i = response.position(); i <= limit; i++) {
+            int digit = i < limit ? response.get(i) - '0' : -1;
+            if (0 <= digit && digit <= 9) {
+                if (length == 0 && ++groups > 2) {
+                    return -1;
+                }
+                if (length == 1 && value == 0 || value < 0) {
+                    // leading zero or overflow, the whole group mismatches
+                    value = -1;
+                } else {
+                    value = value * 10 + digit;
+                    if (value > Integer.MAX_VALUE) {
+                        value = -1;
+                    }
+                }
+                length++;
+            } else if (length > 0) {
+                int number = (int) value;
+                if (groups == 1) {
+                    first = number;
+                } else {
+                    second = number;
+                }
+                value = 0;
+                length = 0;
+            }
+        }
+        return groups == 2 && first == thread ? second : -1;
+    }
+
     static void shutdownExecutorService(ExecutorService executorService) {
         try {
             executorService.shutdown();
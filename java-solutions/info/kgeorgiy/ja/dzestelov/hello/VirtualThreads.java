@@ -0,0 +1,86 @@
+package info.kgeorgiy.ja.dzestelov.hello;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads of Java 21 and later, looked up reflectively so the solutions still run on older JDKs.
+ */
+class VirtualThreads {
+
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME;
+    private static final MethodHandle FACTORY;
+    private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle newThreadPerTaskExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(
+                    Class.forName("java.lang.Thread$Builder$OfVirtual")
+            ));
+            name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            newThreadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            start(ofVirtual, factory);
+        } catch (Throwable ignored) {
+            // virtual threads are not available, or are a preview feature not enabled
+            newThreadPerTaskExecutor = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    /**
+     * Starts and joins a virtual thread, since on Java 19 and 20 the methods exist
+     * but fail unless preview features are enabled.
+     */
+    private static void start(MethodHandle ofVirtual, MethodHandle factory) throws Throwable {
+        Thread thread = ((ThreadFactory) factory.invoke(ofVirtual.invoke())).newThread(() -> {
+        });
+        thread.start();
+        thread.join();
+    }
+
+    static boolean isSupported() {
+        return NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the runtime has no virtual threads
+     */
+    static void checkSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on "
+                    + Runtime.version());
+        }
+    }
+
+    /**
+     * Creates executor starting a new virtual thread for each task.
+     * Threads are named {@code prefix + n}, counting from zero in the order tasks are submitted.
+     *
+     * @throws UnsupportedOperationException if the runtime has no virtual threads
+     */
+    static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        checkSupported();
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(), prefix, 0L);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke((ThreadFactory) FACTORY.invoke(builder));
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package info.kgeorgiy.ja.dzestelov.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with log-linear buckets, as in HdrHistogram: every power of two range
+ * is split into {@value #HALF} equal buckets, so recorded values keep about three significant digits.
+ * Percentiles are reported as the highest value of the bucket containing them. Safe for concurrent use.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int MAX_SHIFT = Long.SIZE - SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_SHIFT + 2) * HALF);
+
+    public void record(final long nanos) {
+        counts.incrementAndGet(index(Math.max(nanos, 0)));
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns latency in nanoseconds not exceeded by the given quantile of values, or zero if nothing was recorded.
+     */
+    public long getPercentile(final double quantile) {
+        final long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(counts.length() - 1);
+    }
+
+    /**
+     * Returns counts of non-empty power of two ranges by their upper bounds, such as {@code "<1.0ms"}.
+     */
+    public Map<String, Long> toMap() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length(); i++) {
+            final long count = counts.get(i);
+            if (count > 0) {
+                final int bits = Long.SIZE - Long.numberOfLeadingZeros(highestValue(i));
+                final long upperBound = bits == Long.SIZE - 1 ? Long.MAX_VALUE : 1L << bits;
+                result.merge("<" + format(upperBound), count, Long::sum);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Values below {@link #SUB_BUCKETS} have buckets of their own; larger values are shifted right
+     * until they fit the upper half of the sub-buckets, and the shift selects the range.
+     */
+    private static int index(final long value) {
+        final int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    private static long highestValue(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / HALF - 1;
+        final long lowest = (long) (index - shift * HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public static String format(final long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        } else if (nanos < 1_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        } else if (nanos < 1_000_000_000) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.1fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,56 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public abstract class BaseChecksumSink implements ChecksumSink {
+
+    protected final ChecksumWriter writer;
+    protected final FileChecksumBuilder checksumBuilder;
+    protected final ChecksumCache cache;
+    protected final WalkStatistics statistics;
+
+    protected BaseChecksumSink(
+            final ChecksumWriter writer,
+            final FileChecksumBuilder checksumBuilder,
+            final ChecksumCache cache,
+            final WalkStatistics statistics
+    ) {
+        this.writer = writer;
+        this.checksumBuilder = checksumBuilder;
+        this.cache = cache;
+        this.statistics = statistics;
+    }
+
+    protected boolean lookup(final Path file, final BasicFileAttributes attrs, final byte[] checksum) {
+        return cache != null && cache.get(file, attrs, checksum);
+    }
+
+    protected boolean compute(final Path file, final BasicFileAttributes attrs, final byte[] checksum) {
+        final long start = System.nanoTime();
+        final long size = FileChecksumBuilder.getSize(attrs);
+        final boolean hashed = checksumBuilder.getChecksum(file, size, checksum);
+        statistics.hashed(size, System.nanoTime() - start);
+        if (!hashed) {
+            statistics.failed(checksumBuilder.getLastException());
+            return false;
+        }
+        if (cache != null) {
+            cache.put(file, attrs, checksum);
+        }
+        return true;
+    }
+
+    @Override
+    public void acceptFailed(final Path file, final IOException exception) throws IOException {
+        statistics.failed(exception);
+        acceptEmpty(file.toString());
+    }
+
+    protected void write(final byte[] checksum, final String name) throws IOException {
+        final long start = System.nanoTime();
+        writer.write(checksum, name);
+        statistics.getWriting().processed(1, System.nanoTime() - start);
+    }
+}
@@ -1,29 +1,109 @@
 package info.kgeorgiy.ja.dzestelov.walk;
 
+import info.kgeorgiy.ja.dzestelov.walk.hash.HashProviders;
 import info.kgeorgiy.ja.dzestelov.walk.walker.BaseWalker;
 import info.kgeorgiy.ja.dzestelov.walk.walker.WalkerException;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public abstract class BaseWalk {
 
-    private static final String HASH_ALGORITHM_NAME = "SHA-1";
     private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final List<String> OPTIONS = List.of(
+            "--algorithm <SHA-1|SHA-256|CRC32C|XXH64|...>", "--threads <n>",
+            "--channel-threshold <bytes>", "--map-threshold <bytes>", "--cache <file>", "--cache-entries <n>",
+            "--traversal <sequential|ordered|unordered>", "--traversal-threads <n>",
+            "--report <checksums|duplicates>", "--prefilter-block <bytes>",
+            "--block-size <bytes>", "--block-threads <n>", "--block-sidecar <dir>",
+            "--stats <true|false>", "--progress <seconds>", "--jmx <true|false>"
+    );
 
     public void run(String[] args) {
-        if (args == null || args.length != 2) {
-            System.out.println("Usage: java " + this.getClass().getName() + " <input file> <output file>");
+        final WalkOptions options;
+        try {
+            options = WalkOptions.parse(args, getUnsupportedOptions());
+        } catch (final IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: java " + this.getClass().getName() + " [options] <input file> <output file>");
+            System.out.println("Options: " + OPTIONS.stream()
+                    .filter(option -> !getUnsupportedOptions().contains(option.substring(0, option.indexOf(' '))))
+                    .collect(Collectors.joining(" ")));
             return;
         }
 
-        try {
-            getWalker(args[0], args[1], CHARSET).walk(new FileChecksumBuilder(HASH_ALGORITHM_NAME));
-        } catch (NoSuchAlgorithmException | WalkerException | NullPointerException e) {
+        try (final FileChecksumBuilder checksumBuilder = createChecksumBuilder(options)) {
+            final Path cacheFile = options.getCacheFile() == null ? null : Path.of(options.getCacheFile());
+            final ChecksumCache cache = cacheFile == null ? null : loadCache(cacheFile, checksumBuilder, options);
+
+            final BaseWalker walker = getWalker(options, CHARSET);
+            final WalkMonitor monitor = new WalkMonitor(
+                    walker.getStatistics(), options.isJmx(), options.getProgressInterval(), System.err
+            );
+            try {
+                if (options.getReport() == WalkOptions.Report.DUPLICATES) {
+                    walker.walk((writer, statistics) -> new DuplicateChecksumSink(
+                            writer, checksumBuilder, cache, options.getThreads(), options.getPrefilterBlock(), statistics
+                    ));
+                } else {
+                    walker.walk(checksumBuilder, options.getThreads(), cache);
+                }
+            } finally {
+                monitor.close();
+            }
+            if (options.isStats()) {
+                walker.getStatistics().print(System.err);
+            }
+
+            if (cache != null) {
+                cache.save(cacheFile);
+            }
+        } catch (NoSuchAlgorithmException | WalkerException | NullPointerException | InvalidPathException e) {
             System.out.println(e.getMessage());
+        } catch (final IOException e) {
+            System.out.println("Unable to save checksum cache: " + e.getMessage());
+        }
+    }
+
+    private static FileChecksumBuilder createChecksumBuilder(final WalkOptions options) throws NoSuchAlgorithmException {
+        if (options.getBlockSize() == 0) {
+            return new FileChecksumBuilder(options.getAlgorithm(), options.getChannelThreshold(), options.getMapThreshold());
         }
+        return new MerkleChecksumBuilder(
+                HashProviders.get(options.getAlgorithm()),
+                options.getChannelThreshold(),
+                options.getMapThreshold(),
+                options.getBlockSize(),
+                options.getBlockThreads(),
+                options.getSidecarDirectory() == null ? null : Path.of(options.getSidecarDirectory())
+        );
     }
 
-    protected abstract BaseWalker getWalker(String input, String output, Charset charset) throws WalkerException;
+    private static ChecksumCache loadCache(final Path file, final FileChecksumBuilder checksumBuilder, final WalkOptions options) {
+        final ChecksumCache cache = new ChecksumCache(
+                checksumBuilder.getAlgorithmName(), checksumBuilder.getChecksumSize(), options.getCacheEntries()
+        );
+        try {
+            cache.load(file);
+        } catch (final IOException e) {
+            System.out.println("Ignoring checksum cache: " + e.getMessage());
+        }
+        return cache;
+    }
+
+    protected abstract BaseWalker getWalker(WalkOptions options, Charset charset) throws WalkerException;
+
+    /**
+     * Returns options ignored by the walker of this walk, rejected instead of being silently ignored.
+     */
+    protected Set<String> getUnsupportedOptions() {
+        return Set.of();
+    }
 }
@@ -0,0 +1,173 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent checksums of regular files keyed by absolute path, size, modification time and file key.
+ * Keeps at most the given number of entries, evicting the least recently used ones.
+ *
+ * <p>File format: magic, algorithm name, checksum size, number of entries, then for every entry
+ * path length, UTF-8 path, size, modification time in nanoseconds, file key hash and checksum.
+ * Entries are stored from the least to the most recently used one.
+ */
+public class ChecksumCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    private static final int MAGIC = 0x574b4331;
+
+    private final String algorithm;
+    private final int checksumSize;
+    private final Map<String, Entry> entries;
+
+    public ChecksumCache(final String algorithm, final int checksumSize, final int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of entries must be positive");
+        }
+        this.algorithm = Objects.requireNonNull(algorithm, "Algorithm must be not null");
+        this.checksumSize = checksumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Loads entries from the given cache file. Missing file or file written for another algorithm
+     * leaves the cache empty.
+     *
+     * @throws IOException if the file exists but cannot be read or is malformed
+     */
+    public synchronized void load(final Path file) throws IOException {
+        try {
+            // read to the heap rather than mapped, as a mapped file cannot be replaced by save on Windows
+            final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.remaining() < Integer.BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a checksum cache file: " + file);
+            }
+            if (!algorithm.equals(readString(buffer)) || buffer.getInt() != checksumSize) {
+                return;
+            }
+
+            for (int count = buffer.getInt(); count > 0; count--) {
+                final String path = readString(buffer);
+                final Entry entry = new Entry(buffer.getLong(), buffer.getLong(), buffer.getInt(), new byte[checksumSize]);
+                buffer.get(entry.checksum);
+                entries.put(path, entry);
+            }
+        } catch (final NoSuchFileException ignored) {
+            // nothing cached yet
+        } catch (final BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            entries.clear();
+            throw new IOException("Malformed checksum cache file: " + file, e);
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Saves entries to the given file, replacing it atomically where the file system allows.
+     */
+    public synchronized void save(final Path file) throws IOException {
+        final Path absolute = file.toAbsolutePath();
+        final Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            writeString(out, algorithm);
+            out.writeInt(checksumSize);
+            out.writeInt(entries.size());
+            for (final Map.Entry<String, Entry> e : entries.entrySet()) {
+                final Entry entry = e.getValue();
+                writeString(out, e.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                out.writeInt(entry.key);
+                out.write(entry.checksum);
+            }
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeString(final DataOutputStream out, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Copies cached checksum of the unchanged file to the given array.
+     *
+     * @return {@code true} if the file is cached and unchanged since then
+     */
+    public boolean get(final Path file, final BasicFileAttributes attrs, final byte[] checksum) {
+        if (attrs == null || !attrs.isRegularFile()) {
+            return false;
+        }
+        final String path = file.toAbsolutePath().toString();
+        synchronized (this) {
+            final Entry entry = entries.get(path);
+            if (entry == null || !entry.matches(attrs)) {
+                return false;
+            }
+            System.arraycopy(entry.checksum, 0, checksum, 0, checksumSize);
+            return true;
+        }
+    }
+
+    public void put(final Path file, final BasicFileAttributes attrs, final byte[] checksum) {
+        if (attrs == null || !attrs.isRegularFile()) {
+            return;
+        }
+        final Entry entry = new Entry(attrs.size(), getModified(attrs), getKey(attrs), checksum.clone());
+        final String path = file.toAbsolutePath().toString();
+        synchronized (this) {
+            entries.put(path, entry);
+        }
+    }
+
+    private static long getModified(final BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static int getKey(final BasicFileAttributes attrs) {
+        return Objects.hashCode(attrs.fileKey());
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long modified;
+        private final int key;
+        private final byte[] checksum;
+
+        private Entry(final long size, final long modified, final int key, final byte[] checksum) {
+            this.size = size;
+            this.modified = modified;
+            this.key = key;
+            this.checksum = checksum;
+        }
+
+        private boolean matches(final BasicFileAttributes attrs) {
+            return size == attrs.size() && modified == getModified(attrs) && key == getKey(attrs);
+        }
+    }
+}
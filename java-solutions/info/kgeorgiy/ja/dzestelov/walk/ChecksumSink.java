@@ -0,0 +1,29 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Receives files in walk order and writes their checksums in the same order.
+ */
+public interface ChecksumSink extends Closeable {
+
+    void accept(Path file, BasicFileAttributes attrs) throws IOException;
+
+    void acceptEmpty(String name) throws IOException;
+
+    /**
+     * Accepts file that could not be visited.
+     */
+    default void acceptFailed(final Path file, final IOException exception) throws IOException {
+        acceptEmpty(file.toString());
+    }
+
+    /**
+     * Called once all files are accepted, before {@link #close()}, only if the walk succeeded.
+     */
+    default void finish() throws IOException {
+    }
+}
@@ -0,0 +1,7 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+@FunctionalInterface
+public interface ChecksumSinkFactory {
+
+    ChecksumSink create(ChecksumWriter writer, WalkStatistics statistics);
+}
@@ -0,0 +1,144 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes {@code <hex checksum> <name>} lines to a file channel through a reusable direct buffer.
+ * Checksums are hex-encoded straight into the buffer and names are encoded once, without intermediate strings.
+ * Output is the same as written by {@link java.io.BufferedWriter} with {@link java.io.BufferedWriter#newLine()}:
+ * a single encoder session spans the whole file, so a byte order mark, if any, is written once.
+ */
+public class ChecksumWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final boolean asciiCompatible;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final String lineSeparator = System.lineSeparator();
+    private CharBuffer chars = CharBuffer.allocate(256);
+
+    public ChecksumWriter(final FileChannel channel, final Charset charset) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder();
+        this.asciiCompatible = charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    public static ChecksumWriter open(final Path file, final Charset charset) throws IOException {
+        return new ChecksumWriter(FileChannel.open(
+                file, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING
+        ), charset);
+    }
+
+    public void write(final byte[] checksum, final String name) throws IOException {
+        if (asciiCompatible) {
+            ensureRemaining(2 * checksum.length + 1);
+            for (final byte b : checksum) {
+                buffer.put(HEX_DIGITS[(b >> 4) & 0xF]);
+                buffer.put(HEX_DIGITS[b & 0xF]);
+            }
+            buffer.put((byte) ' ');
+            writeAscii(name);
+            writeAscii(lineSeparator);
+        } else {
+            final CharBuffer line = prepareChars(2 * checksum.length + 1 + name.length() + lineSeparator.length());
+            for (final byte b : checksum) {
+                line.put((char) HEX_DIGITS[(b >> 4) & 0xF]);
+                line.put((char) HEX_DIGITS[b & 0xF]);
+            }
+            line.put(' ').put(name).put(lineSeparator);
+            encode(line.flip());
+        }
+    }
+
+    /**
+     * Writes empty line.
+     */
+    public void newLine() throws IOException {
+        if (asciiCompatible) {
+            writeAscii(lineSeparator);
+        } else {
+            encode(prepareChars(lineSeparator.length()).put(lineSeparator).flip());
+        }
+    }
+
+    private void writeAscii(final String string) throws IOException {
+        final int length = string.length();
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c >= 0x80) {
+                encode(prepareChars(length - i).put(string, i, length).flip());
+                return;
+            }
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    private CharBuffer prepareChars(final int length) {
+        if (chars.capacity() < length) {
+            chars = CharBuffer.allocate(Math.max(length, 2 * chars.capacity()));
+        }
+        return chars.clear();
+    }
+
+    private void encode(final CharBuffer input) throws IOException {
+        CoderResult result;
+        do {
+            result = encoder.encode(input, buffer, false);
+            if (result.isOverflow()) {
+                flushBuffer();
+            } else if (result.isError()) {
+                result.throwException();
+            }
+        } while (!result.isUnderflow());
+        if (input.hasRemaining()) {
+            // high surrogate followed by a separator, never by a low surrogate
+            throw new MalformedInputException(input.remaining());
+        }
+    }
+
+    private void ensureRemaining(final int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            while (encoder.encode(CharBuffer.allocate(0), buffer, true).isOverflow()) {
+                flushBuffer();
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                flushBuffer();
+            }
+            flushBuffer();
+        }
+    }
+}
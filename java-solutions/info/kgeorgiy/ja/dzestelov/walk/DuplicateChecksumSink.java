@@ -0,0 +1,227 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import info.kgeorgiy.ja.dzestelov.walk.hash.Hasher;
+import info.kgeorgiy.ja.dzestelov.walk.hash.XxHash64Provider;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Writes groups of regular files with equal content instead of checksums of every file.
+ * Files are grouped by size first, and only files with colliding sizes are read. Groups of files larger than
+ * two prefilter blocks are narrowed by a hash of their first and last blocks before full content hashing.
+ *
+ * <p>Files reached several times, by overlapping or repeated input lines or through hard links, are reported once,
+ * by the path they were first reached by.
+ *
+ * <p>Groups are written largest files first, separated by empty lines, every file as {@code <checksum> <path>}.
+ * Nothing is written if the walk fails, since groups of a partial walk would miss duplicates.
+ */
+public class DuplicateChecksumSink extends BaseChecksumSink {
+
+    public static final int DEFAULT_PREFILTER_BLOCK = 1 << 12;
+
+    private final int threads;
+    private final int prefilterBlock;
+    private final Map<Long, List<Candidate>> sizes = new HashMap<>();
+    private final Set<Object> seen = new HashSet<>();
+    private final XxHash64Provider prefilterProvider = new XxHash64Provider();
+    private final ThreadLocal<Hasher> prefilterHashers = ThreadLocal.withInitial(prefilterProvider::newHasher);
+    private final ThreadLocal<ByteBuffer> prefilterBuffers;
+
+    /**
+     * @param prefilterBlock size of blocks hashed by the prefilter, or zero to hash full content right away
+     */
+    public DuplicateChecksumSink(
+            final ChecksumWriter writer,
+            final FileChecksumBuilder checksumBuilder,
+            final ChecksumCache cache,
+            final int threads,
+            final int prefilterBlock,
+            final WalkStatistics statistics
+    ) {
+        super(writer, checksumBuilder, cache, statistics);
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        if (prefilterBlock < 0) {
+            throw new IllegalArgumentException("Prefilter block size must be non-negative");
+        }
+        this.threads = threads;
+        this.prefilterBlock = prefilterBlock;
+        this.prefilterBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(prefilterBlock));
+    }
+
+    @Override
+    public void accept(final Path file, final BasicFileAttributes attrs) {
+        statistics.getTraversal().processed(1, 0);
+        if (attrs.isRegularFile() && seen.add(getIdentity(file, attrs))) {
+            sizes.computeIfAbsent(attrs.size(), size -> new ArrayList<>()).add(new Candidate(file, attrs));
+        }
+    }
+
+    /**
+     * Returns key identifying the file itself, whatever path it is reached by: its file key where the file system
+     * provides one, its normalized absolute path otherwise.
+     */
+    private static Object getIdentity(final Path file, final BasicFileAttributes attrs) {
+        final Object key = attrs.fileKey();
+        return key != null ? key : file.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void acceptEmpty(final String name) {
+        statistics.getTraversal().processed(1, 0);
+        // unreadable files have no duplicates
+    }
+
+    @Override
+    public void finish() throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<List<Candidate>> duplicates = new ArrayList<>();
+            for (final Map.Entry<Long, List<Candidate>> entry : sizes.entrySet()) {
+                final List<Candidate> sameSize = entry.getValue();
+                if (sameSize.size() < 2) {
+                    continue;
+                }
+                final List<List<Candidate>> candidates = prefilterBlock > 0 && entry.getKey() > 2L * prefilterBlock
+                        ? split(sameSize, executor, this::prefilter)
+                        : List.of(sameSize);
+                for (final List<Candidate> group : candidates) {
+                    duplicates.addAll(split(group, executor, this::checksum));
+                }
+            }
+
+            duplicates.sort(Comparator.<List<Candidate>>comparingLong(group -> group.get(0).attrs.size()).reversed());
+            for (int i = 0; i < duplicates.size(); i++) {
+                if (i > 0) {
+                    writer.newLine();
+                }
+                for (final Candidate candidate : duplicates.get(i)) {
+                    write(candidate.checksum, candidate.file.toString());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() {
+        // groups are written by finish
+    }
+
+    /**
+     * Splits candidates by key computed in parallel, dropping unreadable files and unique keys.
+     */
+    private static List<List<Candidate>> split(
+            final List<Candidate> candidates,
+            final ExecutorService executor,
+            final Function<Candidate, ByteBuffer> keyFunction
+    ) throws IOException {
+        final List<Future<ByteBuffer>> keys = new ArrayList<>(candidates.size());
+        for (final Candidate candidate : candidates) {
+            keys.add(executor.submit(() -> keyFunction.apply(candidate)));
+        }
+
+        final Map<ByteBuffer, List<Candidate>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            final ByteBuffer key = getKey(keys.get(i), candidates.get(i));
+            if (key != null) {
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(candidates.get(i));
+            }
+        }
+
+        final List<List<Candidate>> result = new ArrayList<>();
+        for (final List<Candidate> group : groups.values()) {
+            if (group.size() > 1) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    private static ByteBuffer getKey(final Future<ByteBuffer> key, final Candidate candidate) throws IOException {
+        try {
+            return key.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while hashing " + candidate.file);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Unexpected hashing failure", e.getCause());
+        }
+    }
+
+    private ByteBuffer prefilter(final Candidate candidate) {
+        final ByteBuffer buffer = prefilterBuffers.get();
+        final Hasher hasher = prefilterHashers.get();
+        hasher.reset();
+        try (final FileChannel channel = FileChannel.open(candidate.file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (!readBlock(channel, buffer.clear(), 0)) {
+                return null;
+            }
+            hasher.update(buffer.flip());
+            if (!readBlock(channel, buffer.clear(), size - prefilterBlock)) {
+                return null;
+            }
+            hasher.update(buffer.flip());
+        } catch (final IOException e) {
+            return null;
+        }
+        final byte[] key = new byte[prefilterProvider.getSize()];
+        hasher.digest(key, 0);
+        return ByteBuffer.wrap(key);
+    }
+
+    private static boolean readBlock(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer checksum(final Candidate candidate) {
+        candidate.checksum = new byte[checksumBuilder.getChecksumSize()];
+        if (lookup(candidate.file, candidate.attrs, candidate.checksum)
+                || compute(candidate.file, candidate.attrs, candidate.checksum)) {
+            return ByteBuffer.wrap(candidate.checksum);
+        }
+        return null;
+    }
+
+    private static class Candidate {
+        private final Path file;
+        private final BasicFileAttributes attrs;
+        private byte[] checksum;
+
+        private Candidate(final Path file, final BasicFileAttributes attrs) {
+            this.file = file;
+            this.attrs = attrs;
+        }
+    }
+}
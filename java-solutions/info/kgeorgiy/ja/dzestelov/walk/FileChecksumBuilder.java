@@ -1,23 +1,93 @@
 package info.kgeorgiy.ja.dzestelov.walk;
 
+import info.kgeorgiy.ja.dzestelov.walk.hash.HashProvider;
+import info.kgeorgiy.ja.dzestelov.walk.hash.HashProviders;
+import info.kgeorgiy.ja.dzestelov.walk.hash.Hasher;
+
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
 import java.util.HexFormat;
 
-public class FileChecksumBuilder {
+/**
+ * Computes file checksums. Safe for concurrent use: every thread hashes with its own
+ * buffers and hasher, created on first use and reused for all following files.
+ *
+ * <p>Files smaller than the channel threshold are read through an input stream into a heap buffer,
+ * larger ones through a {@link FileChannel} into a direct buffer, and files of at least the map threshold
+ * are memory-mapped region by region, so their bytes reach the hasher without copying into the heap.
+ *
+ * <p>Java has no public way to unmap a region: it stays mapped until its buffer is garbage collected.
+ * Mapped regions take address space and page tables rather than heap, so the heap does not fill up
+ * and nothing triggers a collection that would free them. A walk over many huge files therefore keeps
+ * every region hashed since the last collection mapped, up to {@value #MAP_REGION_SIZE} bytes each.
+ * That is harmless on 64-bit JVMs, but may exhaust the address space of 32-bit ones or the mapping limit
+ * of the process ({@code vm.max_map_count} on Linux). There, a map threshold of {@link Long#MAX_VALUE}
+ * disables mapping.
+ */
+public class FileChecksumBuilder implements Closeable {
+
+    public static final long UNKNOWN_SIZE = -1;
+    public static final long DEFAULT_CHANNEL_THRESHOLD = 1 << 20;
+    public static final long DEFAULT_MAP_THRESHOLD = 1 << 26;
 
-    private static final int EMPTY_CHECKSUM_SIZE = 20;
     private static final int BUFFER_SIZE = 1 << 16;
-    private static final byte[] buffer = new byte[BUFFER_SIZE];
+    private static final int DIRECT_BUFFER_SIZE = 1 << 20;
+    private static final long MAP_REGION_SIZE = 1 << 28;
 
-    private final MessageDigest messageDigest;
+    private final HashProvider hashProvider;
+    private final int checksumSize;
+    private final byte[] emptyChecksum;
+    private final long channelThreshold;
+    private final long mapThreshold;
+    private final ThreadLocal<Context> contexts = ThreadLocal.withInitial(this::newContext);
 
     public FileChecksumBuilder(final String hashAlgorithmName) throws NoSuchAlgorithmException {
-        messageDigest = MessageDigest.getInstance(hashAlgorithmName);
+        this(hashAlgorithmName, DEFAULT_CHANNEL_THRESHOLD, DEFAULT_MAP_THRESHOLD);
+    }
+
+    public FileChecksumBuilder(final String hashAlgorithmName, final long channelThreshold, final long mapThreshold)
+            throws NoSuchAlgorithmException {
+        this(HashProviders.get(hashAlgorithmName), channelThreshold, mapThreshold);
+    }
+
+    /**
+     * @param channelThreshold size from which files are read through a channel
+     * @param mapThreshold     size from which files are memory-mapped, at the address space cost described above
+     */
+    public FileChecksumBuilder(final HashProvider hashProvider, final long channelThreshold, final long mapThreshold) {
+        if (channelThreshold < 0 || mapThreshold < 0) {
+            throw new IllegalArgumentException("Thresholds must be non-negative");
+        }
+        this.hashProvider = hashProvider;
+        this.checksumSize = hashProvider.getSize();
+        this.emptyChecksum = hashProvider.getEmpty();
+        this.channelThreshold = channelThreshold;
+        this.mapThreshold = mapThreshold;
+    }
+
+    private Context newContext() {
+        return new Context(hashProvider.newHasher());
+    }
+
+    public String getAlgorithmName() {
+        return hashProvider.getName();
+    }
+
+    protected HashProvider getHashProvider() {
+        return hashProvider;
+    }
+
+    public int getChecksumSize() {
+        return checksumSize;
     }
 
     public String getStringChecksum(final Path path) {
@@ -25,27 +95,132 @@ public class FileChecksumBuilder {
     }
 
     public byte[] getChecksum(final Path path) {
+        final byte[] checksum = new byte[checksumSize];
+        getChecksum(path, UNKNOWN_SIZE, checksum);
+        return checksum;
+    }
+
+    /**
+     * Writes checksum of the file to the given array, or the empty checksum if the file cannot be read.
+     *
+     * @param size expected size of the file used to choose the way it is read, or {@link #UNKNOWN_SIZE}
+     * @return {@code true} if the file was hashed
+     */
+    public boolean getChecksum(final Path path, final long size, final byte[] checksum) {
+        final Context context = contexts.get();
+        try {
+            hash(path, size, checksum);
+            context.exception = null;
+            return true;
+        } catch (final IOException e) {
+            context.exception = e;
+            getEmptyChecksum(checksum);
+            return false;
+        }
+    }
+
+    /**
+     * Writes checksum of the file to the given array with a single sequential pass over the file.
+     */
+    protected void hash(final Path path, final long size, final byte[] checksum) throws IOException {
+        final Context context = contexts.get();
+        context.hasher.reset();
+        try {
+            if (size != UNKNOWN_SIZE && size < channelThreshold) {
+                readStream(path, context);
+            } else {
+                readChannel(path, context);
+            }
+            context.hasher.digest(checksum, 0);
+        } catch (final IOException e) {
+            context.hasher.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the reason the last {@link #getChecksum(Path, long, byte[])} call of the current thread failed,
+     * or {@code null} if it succeeded.
+     */
+    public IOException getLastException() {
+        return contexts.get().exception;
+    }
+
+    /**
+     * Releases resources of the builder. Plain builders hold none.
+     */
+    @Override
+    public void close() {
+    }
+
+    private static void readStream(final Path path, final Context context) throws IOException {
         try (final InputStream inputStream = Files.newInputStream(path)) {
-            messageDigest.reset();
             int read;
-            while ((read = inputStream.read(buffer)) != -1) {
-                messageDigest.update(buffer, 0, read);
+            while ((read = inputStream.read(context.buffer)) != -1) {
+                context.hasher.update(context.buffer, 0, read);
+            }
+        }
+    }
+
+    private void readChannel(final Path path, final Context context) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size >= mapThreshold && size > 0) {
+                // regions are unmapped only when collected, see the class documentation
+                for (long position = 0; position < size; position += MAP_REGION_SIZE) {
+                    final MappedByteBuffer region = channel.map(
+                            FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_REGION_SIZE, size - position)
+                    );
+                    context.hasher.update(region);
+                }
+            } else {
+                final ByteBuffer buffer = context.getDirectBuffer();
+                while (channel.read(buffer.clear()) != -1) {
+                    context.hasher.update(buffer.flip());
+                }
             }
-            return messageDigest.digest();
-        } catch (final IOException e) {
-            return getEmptyChecksum();
         }
     }
 
+    /**
+     * Returns size of the file to pass to {@link #getChecksum(Path, long, byte[])},
+     * or {@link #UNKNOWN_SIZE} if the attributes do not describe the content that will be read.
+     */
+    public static long getSize(final BasicFileAttributes attrs) {
+        return attrs != null && attrs.isRegularFile() ? attrs.size() : UNKNOWN_SIZE;
+    }
+
     public String getEmptyStringChecksum() {
         return toString(getEmptyChecksum());
     }
 
-    public static byte[] getEmptyChecksum() {
-        return new byte[EMPTY_CHECKSUM_SIZE];
+    public byte[] getEmptyChecksum() {
+        return emptyChecksum.clone();
+    }
+
+    public void getEmptyChecksum(final byte[] checksum) {
+        System.arraycopy(emptyChecksum, 0, checksum, 0, checksumSize);
     }
 
-    private String toString(final byte[] bytes) {
+    public static String toString(final byte[] bytes) {
         return HexFormat.of().formatHex(bytes);
     }
+
+    private static class Context {
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final Hasher hasher;
+        private ByteBuffer directBuffer;
+        private IOException exception;
+
+        private Context(final Hasher hasher) {
+            this.hasher = hasher;
+        }
+
+        private ByteBuffer getDirectBuffer() {
+            if (directBuffer == null) {
+                directBuffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+            }
+            return directBuffer;
+        }
+    }
 }
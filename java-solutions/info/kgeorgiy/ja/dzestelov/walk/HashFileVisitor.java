@@ -1,6 +1,5 @@
 package info.kgeorgiy.ja.dzestelov.walk;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
@@ -9,31 +8,21 @@ import java.nio.file.attribute.BasicFileAttributes;
 
 public abstract class HashFileVisitor extends SimpleFileVisitor<Path> {
 
-    protected final BufferedWriter writer;
-    protected final FileChecksumBuilder checksumBuilder;
+    protected final ChecksumSink sink;
 
-    public HashFileVisitor(final BufferedWriter writer, final FileChecksumBuilder checksumBuilder) {
-        this.writer = writer;
-        this.checksumBuilder = checksumBuilder;
+    public HashFileVisitor(final ChecksumSink sink) {
+        this.sink = sink;
     }
 
     @Override
     public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-        return writeString(checksumBuilder.getStringChecksum(file), file);
+        sink.accept(file, attrs);
+        return FileVisitResult.CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
-        return writeString(checksumBuilder.getEmptyStringChecksum(), file);
-    }
-
-    protected FileVisitResult writeString(final String string, final Path file) throws IOException {
-        writeString(string + " " + file);
+        sink.acceptFailed(file, exc);
         return FileVisitResult.CONTINUE;
     }
-
-    protected void writeString(final String string) throws IOException {
-        writer.write(string);
-        writer.newLine();
-    }
 }
@@ -0,0 +1,306 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import info.kgeorgiy.ja.dzestelov.walk.hash.HashProvider;
+import info.kgeorgiy.ja.dzestelov.walk.hash.Hasher;
+import info.kgeorgiy.ja.dzestelov.walk.hash.XxHash64Provider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes checksums of files larger than one block as roots of Merkle trees, so a single huge file
+ * is hashed by several threads. Blocks are read with positional {@link FileChannel} reads and hashed in parallel,
+ * smaller files are hashed as by {@link FileChecksumBuilder}.
+ *
+ * <p>Leaves are {@code H(0x00 || block)} and inner nodes are {@code H(0x01 || left || right)},
+ * as in RFC 6962. The last node of an odd level is promoted to the next level unchanged.
+ *
+ * <p>Block digests of every chunked file may be saved to a sidecar directory, one file per hashed file.
+ * Sidecar format: magic, algorithm name, path, block size, file size, modification time in nanoseconds,
+ * number of blocks, block digests and the root. Files whose sidecar matches their size and modification time
+ * are not read again: the root saved in the sidecar is returned instead. Changed files are hashed in full,
+ * as which blocks changed is not known without reading them; stored block digests are kept for external tools.
+ */
+public class MerkleChecksumBuilder extends FileChecksumBuilder {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 22;
+
+    private static final int MAGIC = 0x574b4231;
+    private static final int READ_SIZE = 1 << 20;
+    private static final int MAX_BLOCKS = Integer.MAX_VALUE - 8;
+    private static final byte[] LEAF_PREFIX = {0};
+    private static final byte[] NODE_PREFIX = {1};
+    private static final String SIDECAR_SUFFIX = ".blocks";
+    private static final int MAX_STRING_LENGTH = 1 << 16;
+
+    private final int blockSize;
+    private final int digestSize;
+    private final ForkJoinPool pool;
+    private final Path sidecarDirectory;
+    private final ThreadLocal<Hasher> hashers;
+    private final ThreadLocal<ByteBuffer> buffers;
+    private final XxHash64Provider sidecarNames = new XxHash64Provider();
+
+    /**
+     * @param blockSize        size of hashed blocks
+     * @param threads          number of threads hashing blocks of a file
+     * @param sidecarDirectory directory to save block digests to, or {@code null} to save nothing
+     */
+    public MerkleChecksumBuilder(
+            final HashProvider hashProvider,
+            final long channelThreshold,
+            final long mapThreshold,
+            final int blockSize,
+            final int threads,
+            final Path sidecarDirectory
+    ) {
+        super(hashProvider, channelThreshold, mapThreshold);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.blockSize = blockSize;
+        this.digestSize = hashProvider.getSize();
+        this.pool = new ForkJoinPool(threads);
+        this.sidecarDirectory = sidecarDirectory;
+        this.hashers = ThreadLocal.withInitial(hashProvider::newHasher);
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(Math.min(blockSize, READ_SIZE)));
+    }
+
+    /**
+     * Returns name of the hash algorithm with the block size, as chunked checksums differ from plain ones.
+     */
+    @Override
+    public String getAlgorithmName() {
+        return super.getAlgorithmName() + "/merkle-" + blockSize;
+    }
+
+    /**
+     * Stops threads hashing blocks.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    @Override
+    protected void hash(final Path path, final long size, final byte[] checksum) throws IOException {
+        if (size != UNKNOWN_SIZE && size <= blockSize) {
+            super.hash(path, size, checksum);
+            return;
+        }
+
+        if (sidecarDirectory != null && loadSidecar(path, checksum)) {
+            return;
+        }
+
+        final byte[] leaves;
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long actualSize = channel.size();
+            if (actualSize <= blockSize) {
+                super.hash(path, actualSize, checksum);
+                return;
+            }
+
+            final long blocks = (actualSize + blockSize - 1) / blockSize;
+            if (blocks > MAX_BLOCKS / digestSize) {
+                throw new IOException("Too many blocks of size " + blockSize + " in file of " + actualSize + " bytes");
+            }
+            leaves = new byte[(int) blocks * digestSize];
+            try {
+                pool.invoke(new BlockTask(channel, actualSize, 0, (int) blocks, leaves));
+            } catch (final UncheckedIOException e) {
+                throw unwrap(e);
+            }
+        }
+
+        root(leaves, checksum);
+        if (sidecarDirectory != null) {
+            saveSidecar(path, leaves, checksum);
+        }
+    }
+
+    /**
+     * Returns the original exception of a block, which the pool may rethrow wrapped in a copy.
+     */
+    private static IOException unwrap(final UncheckedIOException e) {
+        Throwable cause = e;
+        while (cause instanceof UncheckedIOException) {
+            cause = cause.getCause();
+        }
+        return cause instanceof IOException ? (IOException) cause : e.getCause();
+    }
+
+    private void hashBlock(final FileChannel channel, final long fileSize, final int block, final byte[] leaves)
+            throws IOException {
+        final Hasher hasher = hashers.get();
+        final ByteBuffer buffer = buffers.get();
+        hasher.reset();
+        hasher.update(LEAF_PREFIX, 0, 1);
+
+        final long start = (long) block * blockSize;
+        final long end = Math.min(start + blockSize, fileSize);
+        for (long position = start; position < end; ) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("File was truncated while hashing");
+            }
+            position += read;
+            hasher.update(buffer.flip());
+        }
+        hasher.digest(leaves, block * digestSize);
+    }
+
+    /**
+     * Writes root of the tree of the given leaf digests to the checksum.
+     */
+    void root(final byte[] leaves, final byte[] checksum) {
+        final Hasher hasher = hashers.get();
+        byte[] level = leaves;
+        int nodes = leaves.length / digestSize;
+        while (nodes > 1) {
+            final int parents = (nodes + 1) / 2;
+            final byte[] next = new byte[parents * digestSize];
+            for (int i = 0; i < nodes / 2; i++) {
+                hasher.reset();
+                hasher.update(NODE_PREFIX, 0, 1);
+                hasher.update(level, 2 * i * digestSize, 2 * digestSize);
+                hasher.digest(next, i * digestSize);
+            }
+            if (nodes % 2 == 1) {
+                System.arraycopy(level, (nodes - 1) * digestSize, next, (parents - 1) * digestSize, digestSize);
+            }
+            level = next;
+            nodes = parents;
+        }
+        System.arraycopy(level, 0, checksum, 0, digestSize);
+    }
+
+    /**
+     * Returns sidecar file of the given file, named by hash of its absolute path.
+     */
+    public Path getSidecar(final Path file) {
+        final byte[] path = file.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8);
+        final Hasher hasher = sidecarNames.newHasher();
+        hasher.update(path, 0, path.length);
+        final byte[] name = new byte[sidecarNames.getSize()];
+        hasher.digest(name, 0);
+        return sidecarDirectory.resolve(toString(name) + SIDECAR_SUFFIX);
+    }
+
+    /**
+     * Writes root saved in the sidecar of the given file to the checksum, if the sidecar describes the file as it is now.
+     *
+     * @return {@code true} if the root was written
+     */
+    private boolean loadSidecar(final Path file, final byte[] checksum) throws IOException {
+        final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(getSidecar(file)), 1 << 16))) {
+            if (in.readInt() != MAGIC
+                    || !readString(in).equals(super.getAlgorithmName())
+                    || !readString(in).equals(file.toAbsolutePath().toString())
+                    || in.readInt() != blockSize
+                    || in.readLong() != attrs.size()
+                    || in.readLong() != attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            final long blocks = in.readInt();
+            if (blocks != (attrs.size() + blockSize - 1) / blockSize) {
+                return false;
+            }
+            in.skipNBytes(blocks * digestSize);
+            in.readFully(checksum, 0, digestSize);
+            return true;
+        } catch (final IOException e) {
+            // missing or unreadable sidecar, the file is hashed again
+            return false;
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new EOFException("Malformed sidecar string length: " + length);
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void saveSidecar(final Path file, final byte[] leaves, final byte[] root) throws IOException {
+        final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        final Path sidecar = getSidecar(file);
+        Files.createDirectories(sidecarDirectory);
+        final Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            writeString(out, super.getAlgorithmName());
+            writeString(out, file.toAbsolutePath().toString());
+            out.writeInt(blockSize);
+            out.writeLong(attrs.size());
+            out.writeLong(attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+            out.writeInt(leaves.length / digestSize);
+            out.write(leaves);
+            out.write(root, 0, digestSize);
+        }
+        Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeString(final DataOutputStream out, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private final int from;
+        private final int to;
+        private final byte[] leaves;
+
+        private BlockTask(final FileChannel channel, final long fileSize, final int from, final int to, final byte[] leaves) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.from = from;
+            this.to = to;
+            this.leaves = leaves;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    hashBlock(channel, fileSize, from, leaves);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(
+                    new BlockTask(channel, fileSize, from, middle, leaves),
+                    new BlockTask(channel, fileSize, middle, to, leaves)
+            );
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hashes files on a pool of worker threads sharing one {@link FileChecksumBuilder}
+ * and writes them on a dedicated writer thread in the order they were accepted.
+ * Cached checksums are looked up by the caller, so unchanged files never reach the workers.
+ *
+ * <p>Stages are connected by bounded queues of reusable slots: the caller blocks while every slot is
+ * waiting to be hashed or written, and the writer blocks on the oldest slot until it is hashed.
+ */
+public class ParallelChecksumSink extends BaseChecksumSink {
+
+    private static final int SLOTS_PER_THREAD = 64;
+    private static final Slot END = new Slot(0);
+
+    private final BlockingQueue<Slot> free;
+    private final BlockingQueue<Slot> work;
+    private final BlockingQueue<Slot> ordered;
+    private final List<Thread> hashers;
+    private final Thread writerThread;
+
+    private volatile Exception failure;
+
+    public ParallelChecksumSink(
+            final ChecksumWriter writer,
+            final FileChecksumBuilder checksumBuilder,
+            final ChecksumCache cache,
+            final int threads,
+            final WalkStatistics statistics
+    ) {
+        super(writer, checksumBuilder, cache, statistics);
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+
+        final int slots = threads * SLOTS_PER_THREAD;
+        this.free = new ArrayBlockingQueue<>(slots);
+        for (int i = 0; i < slots; i++) {
+            free.add(new Slot(checksumBuilder.getChecksumSize()));
+        }
+        this.work = new ArrayBlockingQueue<>(slots);
+        this.ordered = new ArrayBlockingQueue<>(slots + 1);
+        statistics.registerQueue("hashing", work);
+        statistics.registerQueue("writing", ordered);
+
+        this.hashers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            hashers.add(start(this::hash, "walk-hasher-" + i));
+        }
+        this.writerThread = start(this::writeOrdered, "walk-writer");
+    }
+
+    private static Thread start(final Runnable task, final String name) {
+        final Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void hash() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long start = System.nanoTime();
+                final Slot slot = work.take();
+                statistics.getHashing().blocked(System.nanoTime() - start);
+                try {
+                    compute(slot.file, slot.attrs, slot.checksum);
+                    slot.complete();
+                } catch (final RuntimeException e) {
+                    slot.fail(e);
+                }
+            }
+        } catch (final InterruptedException ignored) {
+            // sink is closing
+        }
+    }
+
+    private void writeOrdered() {
+        try {
+            while (true) {
+                final long start = System.nanoTime();
+                final Slot slot = ordered.take();
+                if (slot == END) {
+                    return;
+                }
+                try {
+                    final byte[] checksum = slot.await();
+                    statistics.getWriting().blocked(System.nanoTime() - start);
+                    if (failure == null) {
+                        write(checksum, slot.name);
+                    }
+                } catch (final IOException | RuntimeException e) {
+                    // keep draining, so the caller never blocks on slots that will not be freed
+                    failure = e;
+                }
+                free.add(slot);
+            }
+        } catch (final InterruptedException ignored) {
+            // sink is closing
+        }
+    }
+
+    @Override
+    public void accept(final Path file, final BasicFileAttributes attrs) throws IOException {
+        final Slot slot = claim(file.toString());
+        if (lookup(file, attrs, slot.checksum)) {
+            slot.complete();
+            return;
+        }
+
+        slot.file = file;
+        slot.attrs = attrs;
+        put(work, slot);
+    }
+
+    @Override
+    public void acceptEmpty(final String name) throws IOException {
+        final Slot slot = claim(name);
+        checksumBuilder.getEmptyChecksum(slot.checksum);
+        slot.complete();
+    }
+
+    private Slot claim(final String name) throws IOException {
+        checkFailure();
+        statistics.getTraversal().processed(1, 0);
+
+        final long start = System.nanoTime();
+        final Slot slot;
+        try {
+            slot = free.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scheduling " + name);
+        }
+        statistics.getTraversal().blocked(System.nanoTime() - start);
+
+        slot.reset(name);
+        put(ordered, slot);
+        return slot;
+    }
+
+    private static void put(final BlockingQueue<Slot> queue, final Slot slot) throws InterruptedIOException {
+        try {
+            queue.put(slot);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while scheduling " + slot.name);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final Exception e = failure;
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        } else if (e != null) {
+            throw (RuntimeException) e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            put(ordered, END);
+            writerThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing checksums");
+        } finally {
+            writerThread.interrupt();
+            hashers.forEach(Thread::interrupt);
+            for (final Thread hasher : hashers) {
+                try {
+                    hasher.join();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    private static class Slot {
+        private final byte[] checksum;
+
+        private Path file;
+        private BasicFileAttributes attrs;
+        private String name;
+        private RuntimeException exception;
+        private boolean done;
+
+        private Slot(final int checksumSize) {
+            this.checksum = new byte[checksumSize];
+        }
+
+        private synchronized void reset(final String name) {
+            this.name = name;
+            this.file = null;
+            this.attrs = null;
+            this.exception = null;
+            this.done = false;
+        }
+
+        private synchronized void complete() {
+            this.done = true;
+            notify();
+        }
+
+        private synchronized void fail(final RuntimeException exception) {
+            this.exception = exception;
+            this.done = true;
+            notify();
+        }
+
+        private synchronized byte[] await() throws InterruptedException {
+            while (!done) {
+                wait();
+            }
+            if (exception != null) {
+                throw exception;
+            }
+            return checksum;
+        }
+    }
+}
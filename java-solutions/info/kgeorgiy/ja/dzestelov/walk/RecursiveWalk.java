@@ -13,7 +13,13 @@ public class RecursiveWalk extends BaseWalk {
     }
 
     @Override
-    protected BaseWalker getWalker(final String input, final String output, final Charset charset) throws WalkerException {
-        return new RecursiveWalker(input, output, charset);
+    protected BaseWalker getWalker(final WalkOptions options, final Charset charset) throws WalkerException {
+        if (options.getTraversal() == WalkOptions.Traversal.SEQUENTIAL) {
+            return new RecursiveWalker(options.getInput(), options.getOutput(), charset);
+        }
+        return new RecursiveWalker(
+                options.getInput(), options.getOutput(), charset,
+                options.getTraversalThreads(), options.getTraversal() == WalkOptions.Traversal.ORDERED
+        );
     }
 }
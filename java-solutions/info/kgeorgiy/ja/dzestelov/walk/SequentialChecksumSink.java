@@ -0,0 +1,41 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public class SequentialChecksumSink extends BaseChecksumSink {
+
+    private final byte[] checksum;
+
+    public SequentialChecksumSink(
+            final ChecksumWriter writer,
+            final FileChecksumBuilder checksumBuilder,
+            final ChecksumCache cache,
+            final WalkStatistics statistics
+    ) {
+        super(writer, checksumBuilder, cache, statistics);
+        this.checksum = new byte[checksumBuilder.getChecksumSize()];
+    }
+
+    @Override
+    public void accept(final Path file, final BasicFileAttributes attrs) throws IOException {
+        statistics.getTraversal().processed(1, 0);
+        if (!lookup(file, attrs, checksum)) {
+            compute(file, attrs, checksum);
+        }
+        write(checksum, file.toString());
+    }
+
+    @Override
+    public void acceptEmpty(final String name) throws IOException {
+        statistics.getTraversal().processed(1, 0);
+        checksumBuilder.getEmptyChecksum(checksum);
+        write(checksum, name);
+    }
+
+    @Override
+    public void close() {
+        // nothing is buffered
+    }
+}
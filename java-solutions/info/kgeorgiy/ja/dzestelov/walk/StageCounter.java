@@ -0,0 +1,44 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput counters of a single walk stage: items processed, time spent working and time
+ * spent blocked on the neighbouring stages, summed over all threads of the stage.
+ */
+public class StageCounter {
+
+    private final String name;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+
+    public StageCounter(final String name) {
+        this.name = name;
+    }
+
+    public void processed(final long count, final long nanos) {
+        items.add(count);
+        busyNanos.add(nanos);
+    }
+
+    public void blocked(final long nanos) {
+        blockedNanos.add(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getItems() {
+        return items.sum();
+    }
+
+    public long getBusyNanos() {
+        return busyNanos.sum();
+    }
+
+    public long getBlockedNanos() {
+        return blockedNanos.sum();
+    }
+}
@@ -5,6 +5,7 @@ import info.kgeorgiy.ja.dzestelov.walk.walker.SimpleWalker;
 import info.kgeorgiy.ja.dzestelov.walk.walker.WalkerException;
 
 import java.nio.charset.Charset;
+import java.util.Set;
 
 public class Walk extends BaseWalk {
 
@@ -13,7 +14,13 @@ public class Walk extends BaseWalk {
     }
 
     @Override
-    protected BaseWalker getWalker(String input, String output, Charset charset) throws WalkerException {
-        return new SimpleWalker(input, output, charset);
+    protected BaseWalker getWalker(WalkOptions options, Charset charset) throws WalkerException {
+        return new SimpleWalker(options.getInput(), options.getOutput(), charset);
+    }
+
+    @Override
+    protected Set<String> getUnsupportedOptions() {
+        // input lines are files, never walked as trees
+        return Set.of("--traversal", "--traversal-threads");
     }
 }
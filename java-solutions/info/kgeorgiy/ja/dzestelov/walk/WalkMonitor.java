@@ -0,0 +1,81 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@link WalkStatistics} of a running walk as a platform MBean
+ * and prints a progress line to the given stream periodically.
+ */
+public class WalkMonitor implements Closeable {
+
+    public static final String OBJECT_NAME = "info.kgeorgiy.ja.dzestelov.walk:type=WalkStatistics";
+
+    private final WalkStatistics statistics;
+    private final PrintStream out;
+    private final ObjectName objectName;
+    private final ScheduledExecutorService progress;
+
+    /**
+     * @param jmx             whether to register the statistics MBean
+     * @param progressSeconds interval between progress lines, or zero to print no progress
+     */
+    public WalkMonitor(final WalkStatistics statistics, final boolean jmx, final int progressSeconds, final PrintStream out) {
+        this.statistics = statistics;
+        this.out = out;
+        this.objectName = jmx ? register(statistics) : null;
+
+        if (progressSeconds > 0) {
+            progress = Executors.newSingleThreadScheduledExecutor(task -> {
+                final Thread thread = new Thread(task, "walk-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progress.scheduleAtFixedRate(
+                    () -> statistics.printProgress(out), progressSeconds, progressSeconds, TimeUnit.SECONDS
+            );
+        } else {
+            progress = null;
+        }
+    }
+
+    private ObjectName register(final WalkStatistics statistics) {
+        try {
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(statistics, name);
+            return name;
+        } catch (final JMException e) {
+            out.println("Unable to register walk statistics MBean: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stops progress reporting, printing the final progress line, and unregisters the MBean.
+     */
+    @Override
+    public void close() {
+        if (progress != null) {
+            progress.shutdownNow();
+            statistics.printProgress(out);
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (final JMException ignored) {
+                // already unregistered
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class WalkOptions {
+
+    public enum Report {
+        /**
+         * Checksum of every file.
+         */
+        CHECKSUMS,
+        /**
+         * Groups of files with equal content.
+         */
+        DUPLICATES
+    }
+
+    public enum Traversal {
+        /**
+         * Single-threaded {@link java.nio.file.Files#walkFileTree}.
+         */
+        SEQUENTIAL,
+        /**
+         * Parallel directory listing, files written in the sequential order.
+         */
+        ORDERED,
+        /**
+         * Parallel directory listing, files written as soon as their directories are listed.
+         */
+        UNORDERED
+    }
+
+    private static final String OPTION_PREFIX = "--";
+    private static final String DEFAULT_ALGORITHM = "SHA-1";
+
+    private String input;
+    private String output;
+    private String algorithm = DEFAULT_ALGORITHM;
+    private int threads = 1;
+    private long channelThreshold = FileChecksumBuilder.DEFAULT_CHANNEL_THRESHOLD;
+    private long mapThreshold = FileChecksumBuilder.DEFAULT_MAP_THRESHOLD;
+    private Traversal traversal = Traversal.SEQUENTIAL;
+    private int traversalThreads = Runtime.getRuntime().availableProcessors();
+    private Report report = Report.CHECKSUMS;
+    private int prefilterBlock = DuplicateChecksumSink.DEFAULT_PREFILTER_BLOCK;
+    private String cacheFile;
+    private int cacheEntries = ChecksumCache.DEFAULT_MAX_ENTRIES;
+    private int blockSize;
+    private int blockThreads = Runtime.getRuntime().availableProcessors();
+    private String sidecarDirectory;
+    private boolean stats;
+    private boolean jmx;
+    private int progressInterval;
+
+    public static WalkOptions parse(final String[] args) {
+        return parse(args, Set.of());
+    }
+
+    /**
+     * Parses arguments, rejecting the given options, written with the {@code --} prefix.
+     */
+    public static WalkOptions parse(final String[] args, final Set<String> unsupported) {
+        if (args == null) {
+            throw new IllegalArgumentException("Arguments must be not null");
+        }
+
+        final WalkOptions options = new WalkOptions();
+        final List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            final String arg = args[i];
+            if (arg != null && arg.startsWith(OPTION_PREFIX)) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value of option " + arg);
+                }
+                if (unsupported.contains(arg)) {
+                    throw new IllegalArgumentException("Unsupported option: " + arg);
+                }
+                options.set(arg.substring(OPTION_PREFIX.length()), args[++i]);
+            } else {
+                files.add(arg);
+            }
+        }
+
+        if (files.size() != 2) {
+            throw new IllegalArgumentException("Expected exactly two file names, found " + files.size());
+        }
+        options.input = files.get(0);
+        options.output = files.get(1);
+        return options;
+    }
+
+    private void set(final String name, final String value) {
+        switch (name) {
+            case "algorithm" -> algorithm = value;
+            case "threads" -> threads = parsePositive(name, value);
+            case "channel-threshold" -> channelThreshold = parseSize(name, value);
+            case "map-threshold" -> mapThreshold = parseSize(name, value);
+            case "report" -> report = parseEnum(Report.class, name, value);
+            case "prefilter-block" -> prefilterBlock = (int) Math.min(Integer.MAX_VALUE, parseSize(name, value));
+            case "traversal" -> traversal = parseEnum(Traversal.class, name, value);
+            case "traversal-threads" -> traversalThreads = parsePositive(name, value);
+            case "cache" -> cacheFile = value;
+            case "cache-entries" -> cacheEntries = parsePositive(name, value);
+            case "block-size" -> blockSize = (int) Math.min(Integer.MAX_VALUE, parseSize(name, value));
+            case "block-threads" -> blockThreads = parsePositive(name, value);
+            case "block-sidecar" -> sidecarDirectory = value;
+            case "stats" -> stats = parseBoolean(name, value);
+            case "jmx" -> jmx = parseBoolean(name, value);
+            case "progress" -> progressInterval = parsePositive(name, value);
+            default -> throw new IllegalArgumentException("Unknown option: " + OPTION_PREFIX + name);
+        }
+    }
+
+    private static int parsePositive(final String name, final String value) {
+        try {
+            final int result = Integer.parseInt(value);
+            if (result > 0) {
+                return result;
+            }
+        } catch (final NumberFormatException ignored) {
+            // handled below
+        }
+        throw new IllegalArgumentException("Option " + OPTION_PREFIX + name + " expects positive integer, found: " + value);
+    }
+
+    private static <E extends Enum<E>> E parseEnum(final Class<E> type, final String name, final String value) {
+        for (final E constant : type.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(value)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown value of option " + OPTION_PREFIX + name + ": " + value);
+    }
+
+    private static boolean parseBoolean(final String name, final String value) {
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value);
+        }
+        throw new IllegalArgumentException("Option " + OPTION_PREFIX + name + " expects true or false, found: " + value);
+    }
+
+    private static long parseSize(final String name, final String value) {
+        try {
+            final long result = Long.parseLong(value);
+            if (result >= 0) {
+                return result;
+            }
+        } catch (final NumberFormatException ignored) {
+            // handled below
+        }
+        throw new IllegalArgumentException("Option " + OPTION_PREFIX + name + " expects size in bytes, found: " + value);
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getChannelThreshold() {
+        return channelThreshold;
+    }
+
+    public long getMapThreshold() {
+        return mapThreshold;
+    }
+
+    public Report getReport() {
+        return report;
+    }
+
+    public int getPrefilterBlock() {
+        return prefilterBlock;
+    }
+
+    public Traversal getTraversal() {
+        return traversal;
+    }
+
+    public int getTraversalThreads() {
+        return traversalThreads;
+    }
+
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    public int getCacheEntries() {
+        return cacheEntries;
+    }
+
+    /**
+     * Returns size of blocks of huge files hashed in parallel, or zero if files are hashed in a single pass.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBlockThreads() {
+        return blockThreads;
+    }
+
+    public String getSidecarDirectory() {
+        return sidecarDirectory;
+    }
+
+    public boolean isStats() {
+        return stats;
+    }
+
+    public boolean isJmx() {
+        return jmx;
+    }
+
+    /**
+     * Returns interval between progress lines in seconds, or zero if progress is not reported.
+     */
+    public int getProgressInterval() {
+        return progressInterval;
+    }
+}
@@ -0,0 +1,198 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import info.kgeorgiy.ja.dzestelov.util.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the walk pipeline stages: reading input, traversing file trees, hashing files and writing output,
+ * together with hashed bytes, hash latencies, failures by cause and depths of the queues between stages.
+ */
+public class WalkStatistics implements WalkStatisticsMXBean {
+
+    private volatile long startNanos = System.nanoTime();
+    private final StageCounter input = new StageCounter("input");
+    private final StageCounter traversal = new StageCounter("traversal");
+    private final StageCounter hashing = new StageCounter("hashing");
+    private final StageCounter writing = new StageCounter("writing");
+    private final LongAdder bytes = new LongAdder();
+    private final LatencyHistogram hashLatency = new LatencyHistogram();
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Collection<?>> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Restarts the elapsed time.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public StageCounter getInput() {
+        return input;
+    }
+
+    public StageCounter getTraversal() {
+        return traversal;
+    }
+
+    public StageCounter getHashing() {
+        return hashing;
+    }
+
+    public StageCounter getWriting() {
+        return writing;
+    }
+
+    public List<StageCounter> getStages() {
+        return List.of(input, traversal, hashing, writing);
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public void hashed(final long size, final long nanos) {
+        hashing.processed(1, nanos);
+        if (size > 0) {
+            bytes.add(size);
+        }
+        hashLatency.record(nanos);
+    }
+
+    /**
+     * Counts a file that was written with the empty checksum because of the given failure.
+     */
+    public void failed(final Exception cause) {
+        failed(cause == null ? "Unknown" : cause.getClass().getSimpleName());
+    }
+
+    public void failed(final String cause) {
+        errors.computeIfAbsent(cause, c -> new LongAdder()).increment();
+    }
+
+    /**
+     * Reports size of the queue as the depth of the named queue until another queue is registered with the same name.
+     */
+    public void registerQueue(final String name, final Collection<?> queue) {
+        queues.put(name, queue);
+    }
+
+    public LatencyHistogram getHashLatency() {
+        return hashLatency;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return getElapsedNanos() / 1_000_000;
+    }
+
+    @Override
+    public long getFiles() {
+        return traversal.getItems();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getFilesPerSecond() {
+        return perSecond(getFiles());
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return perSecond(getBytes());
+    }
+
+    private double perSecond(final long count) {
+        return count * 1e9 / Math.max(getElapsedNanos(), 1);
+    }
+
+    @Override
+    public long getErrorCount() {
+        long count = 0;
+        for (final LongAdder errors : this.errors.values()) {
+            count += errors.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        final Map<String, Long> result = new TreeMap<>();
+        errors.forEach((cause, count) -> result.put(cause, count.sum()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        final Map<String, Integer> result = new TreeMap<>();
+        queues.forEach((name, queue) -> result.put(name, queue.size()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getHashLatencyHistogram() {
+        return hashLatency.toMap();
+    }
+
+    @Override
+    public double getHashLatencyP50Millis() {
+        return hashLatency.getPercentile(0.5) / 1e6;
+    }
+
+    @Override
+    public double getHashLatencyP99Millis() {
+        return hashLatency.getPercentile(0.99) / 1e6;
+    }
+
+    /**
+     * Prints a single line with the walk progress.
+     */
+    public void printProgress(final PrintStream out) {
+        final StringBuilder line = new StringBuilder(String.format(
+                "%d files (%.1f/s), %.1f MiB (%.1f MiB/s), %d errors, hash p50 %s p99 %s",
+                getFiles(), getFilesPerSecond(),
+                getBytes() / (double) (1 << 20), getBytesPerSecond() / (1 << 20),
+                getErrorCount(),
+                LatencyHistogram.format(hashLatency.getPercentile(0.5)),
+                LatencyHistogram.format(hashLatency.getPercentile(0.99))
+        ));
+        final Map<String, Integer> depths = getQueueDepths();
+        if (!depths.isEmpty()) {
+            line.append(", queues");
+            depths.forEach((name, depth) -> line.append(' ').append(name).append('=').append(depth));
+        }
+        out.println(line);
+    }
+
+    /**
+     * Prints throughput of every stage and its busy and blocked time relative to the elapsed time.
+     * Both may exceed 100% for stages running on several threads.
+     */
+    public void print(final PrintStream out) {
+        final double elapsed = Math.max(getElapsedNanos(), 1);
+        out.printf("%-10s %12s %14s %8s %8s%n", "stage", "items", "items/s", "busy", "blocked");
+        for (final StageCounter stage : getStages()) {
+            out.printf(
+                    "%-10s %12d %14.1f %7.1f%% %7.1f%%%n",
+                    stage.getName(),
+                    stage.getItems(),
+                    stage.getItems() * 1e9 / elapsed,
+                    stage.getBusyNanos() * 100 / elapsed,
+                    stage.getBlockedNanos() * 100 / elapsed
+            );
+        }
+        printProgress(out);
+        getErrors().forEach((cause, count) -> out.printf("%-30s %12d%n", cause, count));
+    }
+}
@@ -0,0 +1,31 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link WalkStatistics}.
+ */
+public interface WalkStatisticsMXBean {
+
+    long getElapsedMillis();
+
+    long getFiles();
+
+    long getBytes();
+
+    double getFilesPerSecond();
+
+    double getBytesPerSecond();
+
+    long getErrorCount();
+
+    Map<String, Long> getErrors();
+
+    Map<String, Integer> getQueueDepths();
+
+    Map<String, Long> getHashLatencyHistogram();
+
+    double getHashLatencyP50Millis();
+
+    double getHashLatencyP99Millis();
+}
@@ -0,0 +1,57 @@
+package info.kgeorgiy.ja.dzestelov.walk.hash;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * CRC-32C written as four big-endian bytes. {@link CRC32C} is intrinsified on common platforms,
+ * including updates from direct and mapped buffers.
+ */
+public class Crc32cProvider implements HashProvider {
+
+    public static final String NAME = "CRC32C";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getSize() {
+        return Integer.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Crc32cHasher();
+    }
+
+    private static class Crc32cHasher implements Hasher {
+        private final CRC32C crc = new CRC32C();
+
+        @Override
+        public void reset() {
+            crc.reset();
+        }
+
+        @Override
+        public void update(final byte[] bytes, final int offset, final int length) {
+            crc.update(bytes, offset, length);
+        }
+
+        @Override
+        public void update(final ByteBuffer buffer) {
+            crc.update(buffer);
+        }
+
+        @Override
+        public void digest(final byte[] checksum, final int offset) {
+            final int value = (int) crc.getValue();
+            checksum[offset] = (byte) (value >>> 24);
+            checksum[offset + 1] = (byte) (value >>> 16);
+            checksum[offset + 2] = (byte) (value >>> 8);
+            checksum[offset + 3] = (byte) value;
+            crc.reset();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package info.kgeorgiy.ja.dzestelov.walk.hash;
+
+/**
+ * Hash algorithm used to compute file checksums.
+ */
+public interface HashProvider {
+
+    String getName();
+
+    /**
+     * Returns size of checksums in bytes.
+     */
+    int getSize();
+
+    /**
+     * Returns checksum written for files that cannot be read.
+     */
+    default byte[] getEmpty() {
+        return new byte[getSize()];
+    }
+
+    /**
+     * Creates new hasher. Hashers are not thread-safe and are expected to be reused for many files.
+     */
+    Hasher newHasher();
+}
@@ -0,0 +1,22 @@
+package info.kgeorgiy.ja.dzestelov.walk.hash;
+
+import java.security.NoSuchAlgorithmException;
+
+public final class HashProviders {
+
+    private HashProviders() {
+    }
+
+    /**
+     * Returns provider by name: {@code CRC32C}, {@code XXH64} or any {@link java.security.MessageDigest} algorithm.
+     */
+    public static HashProvider get(final String name) throws NoSuchAlgorithmException {
+        if (Crc32cProvider.NAME.equalsIgnoreCase(name)) {
+            return new Crc32cProvider();
+        }
+        if (XxHash64Provider.NAME.equalsIgnoreCase(name) || "xxhash64".equalsIgnoreCase(name)) {
+            return new XxHash64Provider();
+        }
+        return new MessageDigestProvider(name);
+    }
+}
@@ -0,0 +1,23 @@
+package info.kgeorgiy.ja.dzestelov.walk.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash computation of a single input at a time.
+ */
+public interface Hasher {
+
+    void reset();
+
+    void update(byte[] bytes, int offset, int length);
+
+    /**
+     * Consumes all remaining bytes of the buffer.
+     */
+    void update(ByteBuffer buffer);
+
+    /**
+     * Writes hash of the consumed input to the array and resets the hasher.
+     */
+    void digest(byte[] checksum, int offset);
+}
@@ -0,0 +1,72 @@
+package info.kgeorgiy.ja.dzestelov.walk.hash;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+
+public class MessageDigestProvider implements HashProvider {
+
+    private final String name;
+    private final Provider provider;
+    private final int size;
+
+    public MessageDigestProvider(final String name) throws NoSuchAlgorithmException {
+        final MessageDigest messageDigest = MessageDigest.getInstance(name);
+        this.name = name;
+        this.provider = messageDigest.getProvider();
+        this.size = messageDigest.getDigestLength();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        try {
+            return new MessageDigestHasher(MessageDigest.getInstance(name, provider));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Algorithm is no longer provided: " + name, e);
+        }
+    }
+
+    private static class MessageDigestHasher implements Hasher {
+        private final MessageDigest messageDigest;
+
+        private MessageDigestHasher(final MessageDigest messageDigest) {
+            this.messageDigest = messageDigest;
+        }
+
+        @Override
+        public void reset() {
+            messageDigest.reset();
+        }
+
+        @Override
+        public void update(final byte[] bytes, final int offset, final int length) {
+            messageDigest.update(bytes, offset, length);
+        }
+
+        @Override
+        public void update(final ByteBuffer buffer) {
+            messageDigest.update(buffer);
+        }
+
+        @Override
+        public void digest(final byte[] checksum, final int offset) {
+            try {
+                messageDigest.digest(checksum, offset, messageDigest.getDigestLength());
+            } catch (final DigestException e) {
+                throw new IllegalArgumentException("No space for checksum: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package info.kgeorgiy.ja.dzestelov.walk.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * XXH64 with zero seed written as eight big-endian bytes, the canonical representation of the reference implementation.
+ */
+public class XxHash64Provider implements HashProvider {
+
+    public static final String NAME = "XXH64";
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_SIZE = 32;
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getSize() {
+        return Long.BYTES;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new XxHash64Hasher();
+    }
+
+    private static long round(final long acc, final long input) {
+        return Long.rotateLeft(acc + input * PRIME_2, 31) * PRIME_1;
+    }
+
+    private static long mergeRound(final long acc, final long value) {
+        return (acc ^ round(0, value)) * PRIME_1 + PRIME_4;
+    }
+
+    private static class XxHash64Hasher implements Hasher {
+        private final byte[] stripe = new byte[STRIPE_SIZE];
+        private int buffered;
+        private long total;
+        private long v1;
+        private long v2;
+        private long v3;
+        private long v4;
+
+        private XxHash64Hasher() {
+            reset();
+        }
+
+        @Override
+        public void reset() {
+            v1 = PRIME_1 + PRIME_2;
+            v2 = PRIME_2;
+            v3 = 0;
+            v4 = -PRIME_1;
+            total = 0;
+            buffered = 0;
+        }
+
+        @Override
+        public void update(final byte[] bytes, int offset, int length) {
+            total += length;
+            if (buffered > 0) {
+                final int fill = Math.min(length, STRIPE_SIZE - buffered);
+                System.arraycopy(bytes, offset, stripe, buffered, fill);
+                buffered += fill;
+                offset += fill;
+                length -= fill;
+                if (buffered < STRIPE_SIZE) {
+                    return;
+                }
+                consume(stripe, 0);
+                buffered = 0;
+            }
+            for (; length >= STRIPE_SIZE; offset += STRIPE_SIZE, length -= STRIPE_SIZE) {
+                consume(bytes, offset);
+            }
+            System.arraycopy(bytes, offset, stripe, 0, length);
+            buffered = length;
+        }
+
+        private void consume(final byte[] bytes, final int offset) {
+            v1 = round(v1, (long) LONG.get(bytes, offset));
+            v2 = round(v2, (long) LONG.get(bytes, offset + 8));
+            v3 = round(v3, (long) LONG.get(bytes, offset + 16));
+            v4 = round(v4, (long) LONG.get(bytes, offset + 24));
+        }
+
+        @Override
+        public void update(final ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                final int length = buffer.remaining();
+                update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                return;
+            }
+
+            int position = buffer.position();
+            int length = buffer.remaining();
+            total += length;
+            if (buffered > 0) {
+                final int fill = Math.min(length, STRIPE_SIZE - buffered);
+                buffer.get(position, stripe, buffered, fill);
+                buffered += fill;
+                position += fill;
+                length -= fill;
+                if (buffered < STRIPE_SIZE) {
+                    buffer.position(position);
+                    return;
+                }
+                consume(stripe, 0);
+                buffered = 0;
+            }
+
+            final ByteOrder order = buffer.order();
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            for (; length >= STRIPE_SIZE; position += STRIPE_SIZE, length -= STRIPE_SIZE) {
+                v1 = round(v1, buffer.getLong(position));
+                v2 = round(v2, buffer.getLong(position + 8));
+                v3 = round(v3, buffer.getLong(position + 16));
+                v4 = round(v4, buffer.getLong(position + 24));
+            }
+            buffer.order(order);
+
+            buffer.get(position, stripe, 0, length);
+            buffered = length;
+            buffer.position(position + length);
+        }
+
+        @Override
+        public void digest(final byte[] checksum, final int offset) {
+            long hash;
+            if (total >= STRIPE_SIZE) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = mergeRound(hash, v1);
+                hash = mergeRound(hash, v2);
+                hash = mergeRound(hash, v3);
+                hash = mergeRound(hash, v4);
+            } else {
+                hash = PRIME_5;
+            }
+            hash += total;
+
+            int i = 0;
+            for (; i + Long.BYTES <= buffered; i += Long.BYTES) {
+                hash ^= round(0, (long) LONG.get(stripe, i));
+                hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+            }
+            if (i + Integer.BYTES <= buffered) {
+                hash ^= ((int) INT.get(stripe, i) & 0xFFFFFFFFL) * PRIME_1;
+                hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+                i += Integer.BYTES;
+            }
+            for (; i < buffered; i++) {
+                hash ^= (stripe[i] & 0xFFL) * PRIME_5;
+                hash = Long.rotateLeft(hash, 11) * PRIME_1;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= PRIME_2;
+            hash ^= hash >>> 29;
+            hash *= PRIME_3;
+            hash ^= hash >>> 32;
+
+            for (int j = Long.BYTES - 1; j >= 0; j--) {
+                checksum[offset + j] = (byte) hash;
+                hash >>>= 8;
+            }
+            reset();
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package info.kgeorgiy.ja.dzestelov.walk.walker;
 
+import info.kgeorgiy.ja.dzestelov.walk.ChecksumCache;
+import info.kgeorgiy.ja.dzestelov.walk.ChecksumSink;
+import info.kgeorgiy.ja.dzestelov.walk.ChecksumSinkFactory;
+import info.kgeorgiy.ja.dzestelov.walk.ChecksumWriter;
 import info.kgeorgiy.ja.dzestelov.walk.FileChecksumBuilder;
 import info.kgeorgiy.ja.dzestelov.walk.HashFileVisitor;
+import info.kgeorgiy.ja.dzestelov.walk.ParallelChecksumSink;
+import info.kgeorgiy.ja.dzestelov.walk.SequentialChecksumSink;
+import info.kgeorgiy.ja.dzestelov.walk.StageCounter;
+import info.kgeorgiy.ja.dzestelov.walk.WalkStatistics;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 public abstract class BaseWalker {
 
     private final Charset charset;
     private final Path input;
     private final Path output;
+    private final WalkStatistics statistics = new WalkStatistics();
 
     public BaseWalker(final String inputFile, final String outputFile, final Charset charset) throws WalkerException {
         if (inputFile == null || outputFile == null) {
@@ -40,9 +52,40 @@ public abstract class BaseWalker {
     }
 
     public void walk(final FileChecksumBuilder fileChecksum) throws WalkerException {
+        walk(fileChecksum, 1);
+    }
+
+    public void walk(final FileChecksumBuilder fileChecksum, final int threads) throws WalkerException {
+        walk(fileChecksum, threads, null);
+    }
+
+    /**
+     * Walks files listed in the input file and writes their checksums to the output file.
+     *
+     * @param threads number of hashing threads
+     * @param cache   checksums of files hashed before, or {@code null} to hash every file
+     */
+    public void walk(final FileChecksumBuilder fileChecksum, final int threads, final ChecksumCache cache) throws WalkerException {
         if (fileChecksum == null) {
             throw new NullPointerException("Checksum builder must be not null");
         }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+
+        walk((writer, statistics) -> threads == 1
+                ? new SequentialChecksumSink(writer, fileChecksum, cache, statistics)
+                : new ParallelChecksumSink(writer, fileChecksum, cache, threads, statistics));
+    }
+
+    /**
+     * Walks files listed in the input file passing them to the sink created for the output file.
+     * Input lines are read ahead on a separate thread into a bounded queue.
+     */
+    public void walk(final ChecksumSinkFactory sinkFactory) throws WalkerException {
+        if (sinkFactory == null) {
+            throw new NullPointerException("Sink factory must be not null");
+        }
 
         final Path parent = this.output.getParent();
         if (parent != null) {
@@ -53,18 +96,29 @@ public abstract class BaseWalker {
             }
         }
 
+        statistics.start();
         try (final BufferedReader inputReader = Files.newBufferedReader(input, charset)) {
-            try (final BufferedWriter outputWriter = Files.newBufferedWriter(output, charset)) {
-                final HashFileVisitor fileVisitor = getFileVisitor(outputWriter, fileChecksum);
+            try (final ChecksumWriter outputWriter = ChecksumWriter.open(output, charset);
+                 final ChecksumSink sink = sinkFactory.create(outputWriter, statistics);
+                 final TreeWalker treeWalker = openTreeWalker();
+                 final InputReader lines = new InputReader(inputReader, statistics)) {
+                final HashFileVisitor fileVisitor = getFileVisitor(sink);
+                final StageCounter traversal = statistics.getTraversal();
 
                 String line;
-                while ((line = readInputFileLine(inputReader)) != null) {
+                while ((line = lines.take(traversal)) != null) {
+                    final long start = System.nanoTime();
+                    final long blocked = traversal.getBlockedNanos();
                     try {
-                        Files.walkFileTree(Path.of(line), fileVisitor);
+                        treeWalker.walkFileTree(Path.of(line), fileVisitor);
                     } catch (InvalidPathException e) {
-                        writeString(outputWriter, fileChecksum.getEmptyStringChecksum() + " " + line);
+                        statistics.failed(e);
+                        sink.acceptEmpty(line);
                     }
+                    traversal.processed(0, System.nanoTime() - start - (traversal.getBlockedNanos() - blocked));
                 }
+                lines.checkException();
+                sink.finish();
             } catch (final IOException e) {
                 throw new WalkerException("Unable to write data to output file: " + e.getMessage(), e);
             }
@@ -73,18 +127,90 @@ public abstract class BaseWalker {
         }
     }
 
-    protected abstract HashFileVisitor getFileVisitor(BufferedWriter outputWriter, FileChecksumBuilder fileChecksum);
+    /**
+     * Returns counters of walks of this walker, which may be read while a walk is running.
+     */
+    public WalkStatistics getStatistics() {
+        return statistics;
+    }
 
-    private String readInputFileLine(final BufferedReader bufferedReader) throws WalkerException {
-        try {
-            return bufferedReader.readLine();
-        } catch (final IOException e) {
-            throw new WalkerException("Unable to read line from input file: " + e.getMessage(), e);
-        }
+    protected abstract HashFileVisitor getFileVisitor(ChecksumSink sink);
+
+    protected TreeWalker openTreeWalker() {
+        return Files::walkFileTree;
     }
 
-    protected static void writeString(final BufferedWriter writer, final String data) throws IOException {
-        writer.write(data);
-        writer.newLine();
+    private static class InputReader implements Closeable {
+        private static final int CAPACITY = 1 << 10;
+        private static final String END = new String("");
+
+        private final BufferedReader reader;
+        private final StageCounter counter;
+        private final BlockingQueue<String> lines = new ArrayBlockingQueue<>(CAPACITY);
+        private final Thread thread;
+        private volatile IOException exception;
+
+        private InputReader(final BufferedReader reader, final WalkStatistics statistics) {
+            this.reader = reader;
+            this.counter = statistics.getInput();
+            statistics.registerQueue("input", lines);
+            this.thread = new Thread(this::read, "walk-input");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void read() {
+            try {
+                while (true) {
+                    final long start = System.nanoTime();
+                    String line;
+                    try {
+                        line = reader.readLine();
+                    } catch (final IOException e) {
+                        exception = e;
+                        line = null;
+                    }
+                    if (line == null) {
+                        lines.put(END);
+                        return;
+                    }
+                    final long read = System.nanoTime();
+                    counter.processed(1, read - start);
+                    lines.put(line);
+                    counter.blocked(System.nanoTime() - read);
+                }
+            } catch (final InterruptedException ignored) {
+                // walk is stopped
+            }
+        }
+
+        private String take(final StageCounter consumer) throws InterruptedIOException {
+            final long start = System.nanoTime();
+            try {
+                final String line = lines.take();
+                return line == END ? null : line;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading input file");
+            } finally {
+                consumer.blocked(System.nanoTime() - start);
+            }
+        }
+
+        private void checkException() throws WalkerException {
+            if (exception != null) {
+                throw new WalkerException("Unable to read line from input file: " + exception.getMessage(), exception);
+            }
+        }
+
+        @Override
+        public void close() {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 }
@@ -0,0 +1,378 @@
+package info.kgeorgiy.ja.dzestelov.walk.walker;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Walks file trees listing directories in parallel on a fork-join pool, one task per directory.
+ * Links are not followed, as with {@link Files#walkFileTree(Path, FileVisitor)} without options.
+ * The visitor is always called from the thread that started the walk.
+ *
+ * <p>In ordered mode the visitor sees exactly the same calls in the same order as with {@code Files.walkFileTree}.
+ * Subdirectories are listed ahead of the visitor, at most {@value #MAX_PREFETCHED} of them at a time.
+ *
+ * <p>In unordered mode the visitor is called in the order listings complete. {@code preVisitDirectory} and
+ * {@code postVisitDirectory} bracket the entries of the directory itself, not its subtree, and every result
+ * of the visitor other than {@link FileVisitResult#TERMINATE} is ignored.
+ */
+public class ParallelTreeWalker implements TreeWalker {
+
+    private static final int MAX_PREFETCHED = 1 << 12;
+    private static final int EVENT_QUEUE_CAPACITY = 1 << 14;
+    private static final int CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final ForkJoinPool pool;
+    private final boolean ordered;
+    private final AtomicInteger prefetched = new AtomicInteger();
+
+    public ParallelTreeWalker(final int threads, final boolean ordered) {
+        this.pool = new ForkJoinPool(threads);
+        this.ordered = ordered;
+    }
+
+    @Override
+    public void walkFileTree(final Path start, final FileVisitor<? super Path> visitor) throws IOException {
+        final BasicFileAttributes attrs;
+        try {
+            attrs = readAttributes(start);
+        } catch (final IOException e) {
+            visitor.visitFileFailed(start, e);
+            return;
+        }
+
+        if (!attrs.isDirectory()) {
+            visitor.visitFile(start, attrs);
+        } else if (ordered) {
+            visitDirectory(new DirectoryTask(start, attrs), visitor);
+        } else {
+            walkUnordered(start, attrs, visitor);
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(final Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    private FileVisitResult visitDirectory(final DirectoryTask task, final FileVisitor<? super Path> visitor) throws IOException {
+        final Listing listing = task.await();
+        if (listing.openException != null) {
+            return visitor.visitFileFailed(task.dir, listing.openException);
+        }
+
+        final FileVisitResult preResult = visitor.preVisitDirectory(task.dir, task.attrs);
+        if (preResult != FileVisitResult.CONTINUE) {
+            listing.discard();
+            return preResult == FileVisitResult.SKIP_SUBTREE ? FileVisitResult.CONTINUE : preResult;
+        }
+
+        for (int i = 0; i < listing.entries.size(); i++) {
+            final Entry entry = listing.entries.get(i);
+            final FileVisitResult result;
+            if (entry.task != null) {
+                result = visitDirectory(entry.task, visitor);
+            } else if (entry.exception != null) {
+                result = visitor.visitFileFailed(entry.file, entry.exception);
+            } else {
+                result = visitor.visitFile(entry.file, entry.attrs);
+            }
+
+            if (result == FileVisitResult.TERMINATE) {
+                listing.discard(i + 1);
+                return result;
+            } else if (result == FileVisitResult.SKIP_SIBLINGS) {
+                listing.discard(i + 1);
+                break;
+            }
+        }
+        return visitor.postVisitDirectory(task.dir, listing.iterationException);
+    }
+
+    private static Listing list(final Path dir, final Consumer<Entry> consumer) {
+        final Listing listing = new Listing();
+        final DirectoryStream<Path> stream;
+        try {
+            stream = Files.newDirectoryStream(dir);
+        } catch (final IOException e) {
+            listing.openException = e;
+            return listing;
+        }
+
+        try (stream) {
+            for (final Path file : stream) {
+                final Entry entry = new Entry(file);
+                try {
+                    entry.attrs = readAttributes(file);
+                } catch (final IOException e) {
+                    entry.exception = e;
+                }
+                consumer.accept(entry);
+                listing.entries.add(entry);
+            }
+        } catch (final DirectoryIteratorException e) {
+            listing.iterationException = e.getCause();
+        } catch (final IOException e) {
+            listing.iterationException = e;
+        }
+        return listing;
+    }
+
+    private void walkUnordered(final Path start, final BasicFileAttributes attrs, final FileVisitor<? super Path> visitor)
+            throws IOException {
+        final UnorderedWalk walk = new UnorderedWalk();
+        walk.active.incrementAndGet();
+        pool.execute(new UnorderedTask(walk, start, attrs));
+
+        try {
+            Event event;
+            while ((event = walk.events.take()) != Event.END) {
+                if (!walk.stopped && event.visit(visitor) == FileVisitResult.TERMINATE) {
+                    walk.stopped = true;
+                }
+            }
+        } catch (final InterruptedException e) {
+            walk.stopped = true;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while walking " + start);
+        } finally {
+            if (walk.active.get() > 0) {
+                walk.stopped = true;
+                walk.events.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping traversal threads");
+        }
+    }
+
+    private static class Entry {
+        private final Path file;
+        private BasicFileAttributes attrs;
+        private IOException exception;
+        private DirectoryTask task;
+
+        private Entry(final Path file) {
+            this.file = file;
+        }
+
+        private boolean isDirectory() {
+            return attrs != null && attrs.isDirectory();
+        }
+    }
+
+    private static class Listing {
+        private final List<Entry> entries = new ArrayList<>();
+        private IOException openException;
+        private IOException iterationException;
+
+        private void discard() {
+            discard(0);
+        }
+
+        private void discard(final int from) {
+            for (int i = from; i < entries.size(); i++) {
+                if (entries.get(i).task != null) {
+                    entries.get(i).task.discard();
+                }
+            }
+        }
+    }
+
+    private class DirectoryTask extends RecursiveTask<Listing> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final BasicFileAttributes attrs;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean counted = new AtomicBoolean();
+        private volatile boolean discarded;
+
+        private DirectoryTask(final Path dir, final BasicFileAttributes attrs) {
+            this.dir = dir;
+            this.attrs = attrs;
+        }
+
+        @Override
+        protected Listing compute() {
+            final Listing listing = list(dir, entry -> {
+                if (entry.isDirectory()) {
+                    entry.task = new DirectoryTask(entry.file, entry.attrs);
+                    if (!discarded) {
+                        entry.task.prefetch();
+                    }
+                }
+            });
+            if (discarded) {
+                listing.discard();
+            }
+            return listing;
+        }
+
+        private void prefetch() {
+            if (prefetched.get() < MAX_PREFETCHED && scheduled.compareAndSet(false, true)) {
+                counted.set(true);
+                prefetched.incrementAndGet();
+                fork();
+            }
+        }
+
+        private Listing await() {
+            final Listing listing = scheduled.compareAndSet(false, true) ? pool.invoke(this) : join();
+            release();
+            return listing;
+        }
+
+        private void release() {
+            if (counted.compareAndSet(true, false)) {
+                prefetched.decrementAndGet();
+            }
+        }
+
+        private void discard() {
+            discarded = true;
+            release();
+            if (isCompletedNormally()) {
+                getRawResult().discard();
+            } else {
+                cancel(false);
+            }
+        }
+    }
+
+    private static class UnorderedWalk {
+        private final BlockingQueue<Event> events = new ArrayBlockingQueue<>(EVENT_QUEUE_CAPACITY);
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile boolean stopped;
+
+        private void put(final Event event) throws InterruptedException {
+            if (!stopped) {
+                events.put(event);
+            }
+        }
+    }
+
+    private static class UnorderedTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final UnorderedWalk walk;
+        private final Path dir;
+        private final BasicFileAttributes attrs;
+
+        private UnorderedTask(final UnorderedWalk walk, final Path dir, final BasicFileAttributes attrs) {
+            this.walk = walk;
+            this.dir = dir;
+            this.attrs = attrs;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (walk.stopped) {
+                    return;
+                }
+                final List<UnorderedTask> children = new ArrayList<>();
+                final Listing listing = list(dir, entry -> {
+                    if (entry.isDirectory() && !walk.stopped) {
+                        walk.active.incrementAndGet();
+                        children.add(new UnorderedTask(walk, entry.file, entry.attrs));
+                    }
+                });
+                children.forEach(UnorderedTask::fork);
+
+                if (listing.openException != null) {
+                    walk.put(Event.failed(dir, listing.openException));
+                    return;
+                }
+                walk.put(Event.pre(dir, attrs));
+                for (final Entry entry : listing.entries) {
+                    if (entry.exception != null) {
+                        walk.put(Event.failed(entry.file, entry.exception));
+                    } else if (!entry.isDirectory()) {
+                        walk.put(Event.file(entry.file, entry.attrs));
+                    }
+                }
+                walk.put(Event.post(dir, listing.iterationException));
+            } catch (final InterruptedException e) {
+                walk.stopped = true;
+            } finally {
+                if (walk.active.decrementAndGet() == 0) {
+                    try {
+                        walk.events.put(Event.END);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Event {
+        private static final Event END = new Event(Type.END, null, null, null);
+
+        private enum Type { PRE, FILE, FAILED, POST, END }
+
+        private final Type type;
+        private final Path file;
+        private final BasicFileAttributes attrs;
+        private final IOException exception;
+
+        private Event(final Type type, final Path file, final BasicFileAttributes attrs, final IOException exception) {
+            this.type = type;
+            this.file = file;
+            this.attrs = attrs;
+            this.exception = exception;
+        }
+
+        private static Event pre(final Path dir, final BasicFileAttributes attrs) {
+            return new Event(Type.PRE, dir, attrs, null);
+        }
+
+        private static Event file(final Path file, final BasicFileAttributes attrs) {
+            return new Event(Type.FILE, file, attrs, null);
+        }
+
+        private static Event failed(final Path file, final IOException exception) {
+            return new Event(Type.FAILED, file, null, exception);
+        }
+
+        private static Event post(final Path dir, final IOException exception) {
+            return new Event(Type.POST, dir, null, exception);
+        }
+
+        private FileVisitResult visit(final FileVisitor<? super Path> visitor) throws IOException {
+            return switch (type) {
+                case PRE -> visitor.preVisitDirectory(file, attrs);
+                case FILE -> visitor.visitFile(file, attrs);
+                case FAILED -> visitor.visitFileFailed(file, exception);
+                case POST -> visitor.postVisitDirectory(file, exception);
+                case END -> FileVisitResult.TERMINATE;
+            };
+        }
+    }
+}
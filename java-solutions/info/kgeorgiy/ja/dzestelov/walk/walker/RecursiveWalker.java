@@ -1,9 +1,8 @@
 package info.kgeorgiy.ja.dzestelov.walk.walker;
 
-import info.kgeorgiy.ja.dzestelov.walk.FileChecksumBuilder;
+import info.kgeorgiy.ja.dzestelov.walk.ChecksumSink;
 import info.kgeorgiy.ja.dzestelov.walk.HashFileVisitor;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.FileVisitResult;
@@ -11,17 +10,41 @@ import java.nio.file.Path;
 
 public class RecursiveWalker extends BaseWalker {
 
+    private final int traversalThreads;
+    private final boolean ordered;
+
     public RecursiveWalker(String inputFile, String outputFile, Charset charset) throws WalkerException {
+        this(inputFile, outputFile, charset, 0, true);
+    }
+
+    /**
+     * Creates walker listing directories on {@code traversalThreads} threads,
+     * or with {@link java.nio.file.Files#walkFileTree} if it is zero.
+     *
+     * @param ordered whether files must be written in the order of sequential walk
+     */
+    public RecursiveWalker(String inputFile, String outputFile, Charset charset, int traversalThreads, boolean ordered)
+            throws WalkerException {
         super(inputFile, outputFile, charset);
+        if (traversalThreads < 0) {
+            throw new IllegalArgumentException("Number of traversal threads must be non-negative");
+        }
+        this.traversalThreads = traversalThreads;
+        this.ordered = ordered;
     }
 
     @Override
-    protected HashFileVisitor getFileVisitor(BufferedWriter outputWriter, FileChecksumBuilder fileChecksum) {
-        return new HashFileVisitor(outputWriter, fileChecksum) {
+    protected HashFileVisitor getFileVisitor(ChecksumSink sink) {
+        return new HashFileVisitor(sink) {
             @Override
             public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) {
                 return FileVisitResult.CONTINUE;
             }
         };
     }
+
+    @Override
+    protected TreeWalker openTreeWalker() {
+        return traversalThreads == 0 ? super.openTreeWalker() : new ParallelTreeWalker(traversalThreads, ordered);
+    }
 }
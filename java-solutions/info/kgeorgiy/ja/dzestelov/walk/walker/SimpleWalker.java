@@ -1,9 +1,8 @@
 package info.kgeorgiy.ja.dzestelov.walk.walker;
 
-import info.kgeorgiy.ja.dzestelov.walk.FileChecksumBuilder;
+import info.kgeorgiy.ja.dzestelov.walk.ChecksumSink;
 import info.kgeorgiy.ja.dzestelov.walk.HashFileVisitor;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.FileVisitResult;
@@ -17,11 +16,11 @@ public class SimpleWalker extends BaseWalker {
     }
 
     @Override
-    protected HashFileVisitor getFileVisitor(final BufferedWriter outputWriter, final FileChecksumBuilder fileChecksum) {
-        return new HashFileVisitor(outputWriter, fileChecksum) {
+    protected HashFileVisitor getFileVisitor(final ChecksumSink sink) {
+        return new HashFileVisitor(sink) {
             @Override
             public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
-                writeString(fileChecksum.getEmptyStringChecksum() + " " + dir.toString());
+                sink.acceptEmpty(dir.toString());
                 return FileVisitResult.SKIP_SUBTREE;
             }
         };
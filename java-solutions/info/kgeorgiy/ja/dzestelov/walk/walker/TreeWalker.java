@@ -0,0 +1,20 @@
+package info.kgeorgiy.ja.dzestelov.walk.walker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileVisitor;
+import java.nio.file.Path;
+
+/**
+ * Strategy of walking a file tree, with the contract of {@link java.nio.file.Files#walkFileTree(Path, FileVisitor)}.
+ */
+@FunctionalInterface
+public interface TreeWalker extends Closeable {
+
+    void walkFileTree(Path start, FileVisitor<? super Path> visitor) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+        // nothing to release
+    }
+}
@@ -1,5 +1,6 @@
 module info.kgeorgiy.ja.dzestelov {
     requires java.compiler;
+    requires java.management;
     requires info.kgeorgiy.java.advanced.concurrent;
     requires info.kgeorgiy.java.advanced.mapper;
     requires info.kgeorgiy.java.advanced.walk;
@@ -10,4 +11,6 @@ module info.kgeorgiy.ja.dzestelov {
     requires info.kgeorgiy.java.advanced.hello;
 
     exports info.kgeorgiy.ja.dzestelov.implementor;
+    exports info.kgeorgiy.ja.dzestelov.walk to java.management;
+    exports info.kgeorgiy.ja.dzestelov.hello to java.management;
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+package info.kgeorgiy.ja.dzestelov.concurrent;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.check;
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkEquals;
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkThrows;
+
+/**
+ * Class represents checks of {@link ParallelMapperImpl}: results and exceptions of ranges
+ * sized by the measured cost of elements, completion of asynchronous calls by results, cancellation,
+ * timeout and close, and turns of concurrent calls by their priorities.
+ */
+public class ParallelMapperImplTest {
+
+    public static void main(String[] args) {
+        TestRunner runner = new TestRunner("ParallelMapperImpl");
+
+        runner.test("results in order", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(3)) {
+                for (int size : new int[]{0, 1, 2, 11, 1000, 100_003}) {
+                    checkEquals(range(size).stream().map(x -> x * 2).toList(), mapper.map(x -> x * 2, range(size)),
+                            "results of " + size + " elements");
+                }
+            }
+        });
+
+        runner.test("every element applied once", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(4)) {
+                // costly elements shrink ranges to single elements, cheap ones grow them back
+                checkApplied(mapper, 200, 100_000);
+                checkApplied(mapper, 1_000_000, 0);
+                checkApplied(mapper, 200, 100_000);
+                checkApplied(mapper, 1_000_003, 0);
+            }
+        });
+
+        runner.test("ranges sized by cost", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+                checkEquals(125, mapper.getChunkSize(1000), "range before cost is measured");
+                mapper.map(x -> x, range(1_000_000));
+                checkEquals(500, mapper.getChunkSize(1000), "range of cheap elements, one per thread");
+                check(mapper.getChunkSize(Integer.MAX_VALUE) > 0, "range of the largest mapping");
+                mapper.map(ParallelMapperImplTest::sleep, range(16));
+                checkEquals(1, mapper.getChunkSize(1000), "range of costly elements");
+            }
+            checkThrows(IllegalArgumentException.class, () -> new ParallelMapperImpl(0));
+            checkThrows(IllegalArgumentException.class, () -> new ParallelMapperImpl(-1));
+        });
+
+        runner.test("exceptions", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+                AtomicIntegerArray applied = new AtomicIntegerArray(100);
+                IllegalArgumentException e = checkThrows(IllegalArgumentException.class, () -> mapper.map(x -> {
+                    applied.incrementAndGet(x);
+                    if (x % 10 == 0) {
+                        throw new IllegalArgumentException("bad " + x);
+                    }
+                    return x;
+                }, range(100)));
+                checkEquals(9, e.getSuppressed().length, "suppressed exceptions");
+                for (int i = 0; i < 100; i++) {
+                    checkEquals(1, applied.get(i), "applications of element " + i + " after failures");
+                }
+                checkEquals(List.of(1, 2), mapper.map(x -> x + 1, List.of(0, 1)), "results after failure");
+            }
+        });
+
+        runner.test("load spread over threads", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(4)) {
+                Set<Thread> threads = ConcurrentHashMap.newKeySet();
+                mapper.map(x -> {
+                    threads.add(Thread.currentThread());
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+                    return x;
+                }, range(64));
+                checkEquals(4, threads.size(), "threads applying 64 slow elements");
+            }
+        });
+
+        runner.test("async results", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(2)) {
+                checkEquals(List.of(2, 4, 6), mapper.mapAsync(x -> x * 2, List.of(1, 2, 3)).get(), "results");
+                checkEquals(List.of(), mapper.mapAsync(x -> x, List.of()).get(), "results of no elements");
+                ExecutionException e = checkThrows(ExecutionException.class,
+                        () -> mapper.mapAsync(x -> { throw new IllegalArgumentException("bad"); }, List.of(1)).get());
+                check(e.getCause() instanceof IllegalArgumentException, "cause: " + e.getCause());
+            }
+        });
+
+        runner.test("errors", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+                AtomicIntegerArray applied = new AtomicIntegerArray(10);
+                CompletableFuture<List<Integer>> failed = mapper.mapAsync(x -> {
+                    applied.incrementAndGet(x);
+                    if (x == 3) {
+                        throw new AssertionError("error " + x);
+                    }
+                    return x;
+                }, range(10));
+                ExecutionException e = checkThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+                check(e.getCause() instanceof AssertionError, "cause: " + e.getCause());
+                for (int i = 0; i < 10; i++) {
+                    checkEquals(1, applied.get(i), "applications of element " + i + " after error");
+                }
+                checkThrows(StackOverflowError.class, () -> mapper.map(x -> {
+                    throw new StackOverflowError();
+                }, List.of(1)));
+                checkEquals(List.of(2), mapper.map(x -> x + 1, List.of(1)), "results of the only worker after errors");
+            }
+        });
+
+        runner.test("cancel removes queued jobs", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+                CountDownLatch release = new CountDownLatch(1);
+                CompletableFuture<List<Integer>> blocker = mapper.mapAsync(x -> await(release), List.of(1));
+                AtomicInteger applied = new AtomicInteger();
+                CompletableFuture<List<Integer>> cancelled = mapper.mapAsync(x -> applied.incrementAndGet(), range(100));
+                check(cancelled.cancel(false), "call must be cancelled");
+                release.countDown();
+                blocker.get();
+                checkEquals(List.of(2), mapper.map(x -> x + 1, List.of(1)), "results after cancel");
+                checkEquals(0, applied.get(), "elements applied after cancel");
+            }
+        });
+
+        runner.test("timeout", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+                CountDownLatch release = new CountDownLatch(1);
+                CompletableFuture<List<Integer>> blocker = mapper.mapAsync(x -> await(release), List.of(1));
+                AtomicInteger applied = new AtomicInteger();
+                CompletableFuture<List<Integer>> timed = mapper.mapAsync(
+                        x -> applied.incrementAndGet(), range(100), 20, TimeUnit.MILLISECONDS
+                );
+                CompletionException e = checkThrows(CompletionException.class, timed::join);
+                check(e.getCause() instanceof TimeoutException, "cause: " + e.getCause());
+                release.countDown();
+                blocker.get();
+                checkEquals(0, mapper.map(x -> applied.get(), List.of(1)).get(0), "elements applied after timeout");
+            }
+        });
+
+        runner.test("close fails pending calls", () -> {
+            ParallelMapperImpl mapper = new ParallelMapperImpl(1);
+            CompletableFuture<List<Integer>> pending = mapper.mapAsync(x -> {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+                return x;
+            }, range(400));
+            mapper.close();
+            CompletionException e = checkThrows(CompletionException.class, pending::join);
+            check(e.getCause() instanceof IllegalStateException, "cause: " + e.getCause());
+            check(mapper.mapAsync(x -> x, List.of(1)).isCompletedExceptionally(), "call after close must fail");
+            checkThrows(IllegalStateException.class, () -> mapper.map(x -> x, List.of(1)));
+        });
+
+        runner.test("calls racing close complete", () -> {
+            for (int attempt = 0; attempt < 200; attempt++) {
+                ParallelMapperImpl mapper = new ParallelMapperImpl(2);
+                List<CompletableFuture<List<Integer>>> futures = new ArrayList<>();
+                CountDownLatch started = new CountDownLatch(1);
+                Thread caller = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 100; i++) {
+                        futures.add(mapper.mapAsync(x -> x, range(10)));
+                    }
+                });
+                caller.start();
+                started.await();
+                mapper.close();
+                caller.join();
+                for (CompletableFuture<List<Integer>> future : futures) {
+                    try {
+                        future.get(5, TimeUnit.SECONDS);
+                    } catch (ExecutionException e) {
+                        check(e.getCause() instanceof IllegalStateException, "cause: " + e.getCause());
+                    } catch (TimeoutException e) {
+                        throw new AssertionError("call racing close never completed, attempt " + attempt);
+                    }
+                }
+            }
+        });
+
+        runner.test("small call not delayed by huge one", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+                // measured cost of a millisecond per element makes every element a job of its own
+                mapper.map(ParallelMapperImplTest::sleep, range(8));
+                CompletableFuture<List<Integer>> huge = mapper.mapAsync(ParallelMapperImplTest::sleep, range(500));
+                CompletableFuture<List<Integer>> small = mapper.mapAsync(ParallelMapperImplTest::sleep, range(4));
+                small.get();
+                check(!huge.isDone(), "small call must complete while the huge one is in progress");
+                huge.cancel(false);
+            }
+        });
+
+        runner.test("priority", () -> {
+            try (ParallelMapperImpl mapper = new ParallelMapperImpl(1)) {
+                mapper.map(ParallelMapperImplTest::sleep, range(8));
+                AtomicInteger lowApplied = new AtomicInteger();
+                CompletableFuture<List<Integer>> low = mapper.mapAsync(x -> {
+                    lowApplied.incrementAndGet();
+                    return sleep(x);
+                }, range(100), 1);
+                CompletableFuture<List<Integer>> high = mapper.mapAsync(ParallelMapperImplTest::sleep, range(100), 8);
+                high.get();
+                int applied = lowApplied.get();
+                check(!low.isDone(), "call of priority 8 must complete before call of priority 1");
+                check(0 < applied && applied < 50, "elements of call of priority 1 applied meanwhile: " + applied);
+                low.cancel(false);
+                checkThrows(IllegalArgumentException.class, () -> mapper.mapAsync(x -> x, List.of(1), 0));
+            }
+        });
+
+        runner.exit();
+    }
+
+    private static int sleep(int x) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        return x;
+    }
+
+    private static int await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static void checkApplied(ParallelMapperImpl mapper, int size, long nanos) throws InterruptedException {
+        AtomicIntegerArray applied = new AtomicIntegerArray(size);
+        mapper.map(x -> {
+            if (nanos > 0) {
+                long end = System.nanoTime() + nanos;
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+            }
+            return applied.incrementAndGet(x);
+        }, range(size));
+        for (int i = 0; i < size; i++) {
+            if (applied.get(i) != 1) {
+                check(false, "element " + i + " of " + size + " applied " + applied.get(i) + " times");
+            }
+        }
+    }
+
+    private static List<Integer> range(int size) {
+        return IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,68 @@
+package info.kgeorgiy.ja.dzestelov.hello;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkEquals;
+
+/**
+ * Class represents checks of byte-level response validation of {@link UDPUtils#getRequestNumber(ByteBuffer, int)}.
+ */
+public class UDPUtilsTest {
+
+    public static void main(String[] args) {
+        TestRunner runner = new TestRunner("UDPUtils");
+
+        runner.test("valid responses", () -> {
+            checkEquals(17, getRequestNumber("Hello, p_3_17", 3), "response");
+            checkEquals(0, getRequestNumber("Hello, p_3_0", 3), "zero request");
+            checkEquals(17, getRequestNumber("3 17", 3), "digits only");
+            checkEquals(17, getRequestNumber("x3y17z", 3), "any separators");
+            checkEquals(Integer.MAX_VALUE, getRequestNumber("p_3_" + Integer.MAX_VALUE, 3), "largest request");
+        });
+
+        runner.test("wrong thread", () -> {
+            checkEquals(-1, getRequestNumber("Hello, p_4_17", 3), "other thread");
+            checkEquals(-1, getRequestNumber("Hello, p_17_3", 3), "swapped numbers");
+            checkEquals(-1, getRequestNumber("Hello, p_3_17", -1), "negative thread");
+        });
+
+        runner.test("leading zeros", () -> {
+            checkEquals(-1, getRequestNumber("Hello, p_03_17", 3), "thread");
+            checkEquals(-1, getRequestNumber("Hello, p_3_017", 3), "request");
+        });
+
+        runner.test("overflow", () -> {
+            checkEquals(-1, getRequestNumber("Hello, p_3_99999999999", 3), "request");
+            checkEquals(-1, getRequestNumber("Hello, p_3_" + (Integer.MAX_VALUE + 1L), 3), "request just above int");
+            checkEquals(-1, getRequestNumber("Hello, p_4294967299_17", 3), "thread wrapping to match");
+        });
+
+        runner.test("number of groups", () -> {
+            checkEquals(-1, getRequestNumber("Hello, p_3", 3), "one group");
+            checkEquals(-1, getRequestNumber("Hello, p_3_17_1", 3), "three groups");
+            checkEquals(-1, getRequestNumber("", 3), "empty response");
+        });
+
+        runner.test("non-ASCII text", () -> {
+            checkEquals(17, getRequestNumber("\u041f\u0440\u0438\u0432\u0435\u0442, p_3_17", 3), "Cyrillic prefix");
+            checkEquals(17, getRequestNumber("\u0663 p_3_17", 3), "Arabic-Indic digit is not a digit");
+            checkEquals(-1, getRequestNumber("p_3_\u0661\u0667", 3), "Arabic-Indic request");
+        });
+
+        runner.test("remaining bytes only", () -> {
+            ByteBuffer buffer = ByteBuffer.wrap("1 Hello, p_3_17 2".getBytes(StandardCharsets.UTF_8));
+            buffer.position(2).limit(buffer.limit() - 2);
+            checkEquals(17, UDPUtils.getRequestNumber(buffer, 3), "response between other bytes");
+            checkEquals(2, buffer.position(), "position");
+        });
+
+        runner.exit();
+    }
+
+    private static int getRequestNumber(String response, int thread) {
+        return UDPUtils.getRequestNumber(ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8)), thread);
+    }
+}
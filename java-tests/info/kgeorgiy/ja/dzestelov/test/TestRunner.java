@@ -0,0 +1,70 @@
+package info.kgeorgiy.ja.dzestelov.test;
+
+import java.util.Objects;
+
+/**
+ * Minimal runner of self-checking tests, as the tree has no test framework: every test is a named action,
+ * failures are reported with their stack traces and the process exits with non-zero status if any test failed.
+ */
+public class TestRunner {
+
+    private final String suite;
+    private int passed;
+    private int failed;
+
+    public TestRunner(final String suite) {
+        this.suite = suite;
+    }
+
+    public void test(final String name, final Action action) {
+        try {
+            action.run();
+            passed++;
+            System.err.println("PASS " + suite + ": " + name);
+        } catch (final Throwable e) {
+            failed++;
+            System.err.println("FAIL " + suite + ": " + name);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints the summary and exits with status {@code 1} if any test failed.
+     */
+    public void exit() {
+        System.err.printf("%s: %d passed, %d failed%n", suite, passed, failed);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    public static void check(final boolean condition, final String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void checkEquals(final Object expected, final Object actual, final String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected <" + expected + ">, found <" + actual + ">");
+        }
+    }
+
+    /**
+     * Checks that the action throws an exception of the given class.
+     */
+    public static <E extends Throwable> E checkThrows(final Class<E> expected, final Action action) {
+        try {
+            action.run();
+        } catch (final Throwable e) {
+            if (expected.isInstance(e)) {
+                return expected.cast(e);
+            }
+            throw new AssertionError("Expected " + expected.getSimpleName() + ", found " + e, e);
+        }
+        throw new AssertionError("Expected " + expected.getSimpleName() + ", nothing thrown");
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+}
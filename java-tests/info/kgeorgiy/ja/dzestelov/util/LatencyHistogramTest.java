@@ -0,0 +1,60 @@
+package info.kgeorgiy.ja.dzestelov.util;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.util.Map;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.check;
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkEquals;
+
+/**
+ * Checks precision of percentiles of {@link LatencyHistogram} and its power of two ranges.
+ */
+public class LatencyHistogramTest {
+
+    public static void main(final String[] args) {
+        final TestRunner runner = new TestRunner("LatencyHistogram");
+
+        runner.test("empty", () -> {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            checkEquals(0L, histogram.getPercentile(0.5), "percentile");
+            checkEquals(Map.of(), histogram.toMap(), "ranges");
+        });
+
+        runner.test("small values are exact", () -> {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            for (int i = 1; i <= 100; i++) {
+                histogram.record(i);
+            }
+            checkEquals(50L, histogram.getPercentile(0.5), "p50");
+            checkEquals(99L, histogram.getPercentile(0.99), "p99");
+            checkEquals(100L, histogram.getPercentile(1), "p100");
+        });
+
+        runner.test("three significant digits", () -> {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            for (long value = 1000; value < 1L << 40; value = value * 3 / 2) {
+                histogram.reset();
+                histogram.record(value);
+                final long percentile = histogram.getPercentile(0.5);
+                check(value <= percentile && percentile <= value + value / 128, value + " reported as " + percentile);
+            }
+            histogram.record(Long.MAX_VALUE);
+            checkEquals(Long.MAX_VALUE, histogram.getPercentile(1), "largest value");
+        });
+
+        runner.test("power of two ranges", () -> {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(0);
+            histogram.record(700);
+            histogram.record(1000);
+            histogram.record(1023);
+            histogram.record(1024);
+            histogram.record(-5);
+            checkEquals(Map.of("<1ns", 2L, "<1.0us", 3L, "<2.0us", 1L), histogram.toMap(), "ranges");
+            checkEquals(6L, histogram.getCount(), "count");
+        });
+
+        runner.exit();
+    }
+}
@@ -0,0 +1,124 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.check;
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkThrows;
+
+/**
+ * Checks that {@link ChecksumCache} survives save and load, including saving over the file it was loaded from,
+ * and never returns checksums of changed files.
+ */
+public class ChecksumCacheTest {
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int SIZE = 32;
+    private static final byte[] CHECKSUM = checksum(7);
+
+    public static void main(final String[] args) throws IOException {
+        final Path root = Files.createTempDirectory("cache-test");
+        final TestRunner runner = new TestRunner("ChecksumCache");
+        try {
+            final Path file = Files.writeString(root.resolve("file"), "content");
+            final Path cacheFile = root.resolve("cache");
+
+            runner.test("round trip", () -> {
+                final ChecksumCache cache = new ChecksumCache(ALGORITHM, SIZE, 16);
+                cache.put(file, attributes(file), CHECKSUM);
+                cache.save(cacheFile);
+                checkCached(load(cacheFile), file, CHECKSUM);
+            });
+
+            runner.test("save over loaded file", () -> {
+                final ChecksumCache cache = load(cacheFile);
+                final Path other = Files.writeString(root.resolve("other"), "other");
+                cache.put(other, attributes(other), checksum(3));
+                cache.save(cacheFile);
+                final ChecksumCache reloaded = load(cacheFile);
+                checkCached(reloaded, file, CHECKSUM);
+                checkCached(reloaded, other, checksum(3));
+            });
+
+            runner.test("missing file", () -> check(
+                    !load(root.resolve("missing")).get(file, attributes(file), new byte[SIZE]),
+                    "missing cache file must give empty cache"
+            ));
+
+            runner.test("other algorithm", () -> {
+                final ChecksumCache cache = new ChecksumCache("SHA-1", SIZE, 16);
+                cache.load(cacheFile);
+                check(!cache.get(file, attributes(file), new byte[SIZE]), "cache of other algorithm must be ignored");
+            });
+
+            runner.test("malformed file", () -> {
+                final Path malformed = Files.write(root.resolve("malformed"), new byte[]{0x57, 0x4b, 0x43});
+                checkThrows(IOException.class, () -> load(malformed));
+                final Path truncated = root.resolve("truncated");
+                final byte[] bytes = Files.readAllBytes(cacheFile);
+                Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+                checkThrows(IOException.class, () -> load(truncated));
+            });
+
+            runner.test("changed file", () -> {
+                final ChecksumCache cache = load(cacheFile);
+                Files.writeString(file, "changed content");
+                check(!cache.get(file, attributes(file), new byte[SIZE]), "changed size must miss");
+                Files.writeString(file, "content");
+                Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+                check(!cache.get(file, attributes(file), new byte[SIZE]), "changed modification time must miss");
+            });
+
+            runner.test("eviction", () -> {
+                final ChecksumCache cache = new ChecksumCache(ALGORITHM, SIZE, 1);
+                final Path first = Files.writeString(root.resolve("first"), "1");
+                final Path second = Files.writeString(root.resolve("second"), "2");
+                cache.put(first, attributes(first), CHECKSUM);
+                cache.put(second, attributes(second), CHECKSUM);
+                check(!cache.get(first, attributes(first), new byte[SIZE]), "least recently used entry must be evicted");
+                checkCached(cache, second, CHECKSUM);
+            });
+        } finally {
+            delete(root);
+        }
+        runner.exit();
+    }
+
+    private static ChecksumCache load(final Path file) throws IOException {
+        final ChecksumCache cache = new ChecksumCache(ALGORITHM, SIZE, 16);
+        cache.load(file);
+        return cache;
+    }
+
+    private static void checkCached(final ChecksumCache cache, final Path file, final byte[] expected) throws IOException {
+        final byte[] actual = new byte[SIZE];
+        check(cache.get(file, attributes(file), actual), "unchanged file must be cached: " + file);
+        check(Arrays.equals(expected, actual), "cached checksum differs: " + file);
+    }
+
+    private static BasicFileAttributes attributes(final Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    private static byte[] checksum(final int value) {
+        final byte[] checksum = new byte[SIZE];
+        Arrays.fill(checksum, (byte) value);
+        return checksum;
+    }
+
+    private static void delete(final Path root) throws IOException {
+        try (final Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
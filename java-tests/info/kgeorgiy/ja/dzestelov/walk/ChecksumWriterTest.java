@@ -0,0 +1,145 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.check;
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkThrows;
+
+/**
+ * Checks that {@link ChecksumWriter} writes the same bytes as the {@link BufferedWriter} it replaced,
+ * including a single byte order mark of UTF-16, and fails on unmappable names as it does.
+ */
+public class ChecksumWriterTest {
+
+    private static final List<Charset> CHARSETS = List.of(
+            StandardCharsets.UTF_8, StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1,
+            StandardCharsets.UTF_16, Charset.forName("windows-1251")
+    );
+
+    public static void main(final String[] args) throws IOException {
+        final Path root = Files.createTempDirectory("writer-test");
+        final TestRunner runner = new TestRunner("ChecksumWriter");
+        try {
+            runner.test("ASCII names", () -> {
+                final List<String> names = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    names.add("/tmp/dir" + i % 13 + "/file " + i + ".txt");
+                }
+                names.add("");
+                for (final Charset charset : CHARSETS) {
+                    checkSame(root, charset, names);
+                }
+            });
+
+            runner.test("non-ASCII names", () -> {
+                final List<String> names = List.of(
+                        "caf\u00e9", "\u0444\u0430\u0439\u043b", "a\u00e9b\u0444c", "\u00ff\u0100"
+                );
+                checkSame(root, StandardCharsets.UTF_8, names);
+                checkSame(root, StandardCharsets.UTF_16, names);
+                checkSame(root, StandardCharsets.UTF_8, List.of("\ud83d\ude00 smile", "x\ud83d\ude00"));
+                checkSame(root, StandardCharsets.ISO_8859_1, List.of("caf\u00e9", "\u00ff"));
+                checkSame(root, Charset.forName("windows-1251"), List.of("\u0444\u0430\u0439\u043b", "x\u0451"));
+            });
+
+            runner.test("names crossing buffers", () -> {
+                final String longName = "n".repeat(3 << 20);
+                final String longUnicode = "\u0444".repeat(1 << 20) + "x";
+                for (final Charset charset : List.of(StandardCharsets.UTF_8, StandardCharsets.UTF_16)) {
+                    checkSame(root, charset, List.of("a", longName, "b", longUnicode, "c"));
+                }
+                final List<String> names = new ArrayList<>();
+                for (int i = 0; i < 30_000; i++) {
+                    names.add(i % 7 == 0 ? "\u0444" + i : "f" + i);
+                }
+                checkSame(root, StandardCharsets.UTF_8, names);
+            });
+
+            runner.test("unmappable names", () -> {
+                checkFails(root, StandardCharsets.US_ASCII, "caf\u00e9");
+                checkFails(root, StandardCharsets.ISO_8859_1, "\u0444");
+                checkFails(root, StandardCharsets.UTF_8, "lone \ud83d surrogate");
+                checkFails(root, StandardCharsets.UTF_8, "trailing \ud83d");
+                checkFails(root, StandardCharsets.UTF_16, "trailing \ud83d");
+            });
+        } finally {
+            delete(root);
+        }
+        runner.exit();
+    }
+
+    /**
+     * Writes the names with random checksums of several sizes, and an empty line after every tenth one.
+     */
+    private static void checkSame(final Path root, final Charset charset, final List<String> names) throws IOException {
+        final Random random = new Random(names.size());
+        final List<byte[]> checksums = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            final byte[] checksum = new byte[new int[]{4, 8, 20, 32}[i % 4]];
+            random.nextBytes(checksum);
+            checksums.add(checksum);
+        }
+
+        final Path expected = root.resolve("expected");
+        try (final BufferedWriter writer = Files.newBufferedWriter(expected, charset)) {
+            for (int i = 0; i < names.size(); i++) {
+                writer.write(HexFormat.of().formatHex(checksums.get(i)));
+                writer.write(' ');
+                writer.write(names.get(i));
+                writer.newLine();
+                if (i % 10 == 9) {
+                    writer.newLine();
+                }
+            }
+        }
+
+        final Path actual = root.resolve("actual");
+        try (final ChecksumWriter writer = ChecksumWriter.open(actual, charset)) {
+            for (int i = 0; i < names.size(); i++) {
+                writer.write(checksums.get(i), names.get(i));
+                if (i % 10 == 9) {
+                    writer.newLine();
+                }
+            }
+        }
+
+        check(Arrays.equals(Files.readAllBytes(expected), Files.readAllBytes(actual)),
+                "output of " + names.size() + " names in " + charset + " differs from BufferedWriter");
+    }
+
+    private static void checkFails(final Path root, final Charset charset, final String name) throws IOException {
+        checkThrows(CharacterCodingException.class, () -> {
+            try (final BufferedWriter writer = Files.newBufferedWriter(root.resolve("expected"), charset)) {
+                writer.write(name);
+            }
+        });
+        checkThrows(CharacterCodingException.class, () -> {
+            try (final ChecksumWriter writer = ChecksumWriter.open(root.resolve("actual"), charset)) {
+                writer.write(new byte[4], name);
+            }
+        });
+    }
+
+    private static void delete(final Path root) throws IOException {
+        try (final Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.check;
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkEquals;
+
+/**
+ * Checks groups written by {@link DuplicateChecksumSink} through {@link RecursiveWalk},
+ * including inputs reaching the same files several times, and that a failed walk writes no groups.
+ */
+public class DuplicateChecksumSinkTest {
+
+    public static void main(final String[] args) throws IOException {
+        final Path root = Files.createTempDirectory("duplicates-test");
+        final TestRunner runner = new TestRunner("DuplicateChecksumSink");
+        try {
+            final Path tree = Files.createDirectories(root.resolve("tree"));
+            Files.createDirectories(tree.resolve("a"));
+            Files.createDirectories(tree.resolve("d"));
+            final Path f1 = Files.writeString(tree.resolve("a/f1"), "unique");
+            Files.writeString(tree.resolve("dup1"), "duplicate");
+            Files.writeString(tree.resolve("a/dup2"), "duplicate");
+            final Path dup3 = Files.writeString(tree.resolve("d/dup3"), "duplicate");
+            Files.writeString(tree.resolve("d/other"), "different");
+            final Path empty = Files.writeString(tree.resolve("d/empty"), "");
+            Files.writeString(tree.resolve("empty"), "");
+
+            runner.test("distinct inputs", () -> {
+                final List<List<String>> groups = walk(root, tree.toString());
+                checkEquals(2, groups.size(), "groups");
+                checkEquals(3, groups.get(0).size(), "duplicate files");
+                checkEquals(2, groups.get(1).size(), "empty files");
+                checkUnique(groups);
+            });
+
+            runner.test("overlapping inputs", () -> {
+                final List<List<String>> groups = walk(root, tree.toString(), tree.resolve("d").toString(), f1.toString());
+                checkEquals(2, groups.size(), "groups");
+                checkUnique(groups);
+                check(!contains(groups, f1.toString()), "unique file must not form a group with itself");
+                check(contains(groups, dup3.toString()), "duplicate reached twice must be reported");
+                check(contains(groups, empty.toString()), "empty file reached twice must be reported");
+            });
+
+            runner.test("file given twice", () -> {
+                checkEquals(0, walk(root, f1.toString(), f1.toString()).size(), "groups of a single file");
+                checkEquals(0, walk(root, f1.toString(), tree.resolve("a/../a/./f1").toString()).size(),
+                        "groups of a single file by different paths");
+            });
+
+            runner.test("failed walk", () -> {
+                final Path input = root.resolve("input");
+                // reader decodes input by buffers, so the tree is walked before the malformed bytes are decoded
+                final String missing = root.resolve("missing".repeat(10)).toString();
+                final byte[] lines = (tree + "\n" + (missing + "\n").repeat(1000)).getBytes(StandardCharsets.UTF_8);
+                final byte[] malformed = Arrays.copyOf(lines, lines.length + 2);
+                malformed[lines.length] = (byte) 0xC3;
+                malformed[lines.length + 1] = (byte) 0x28;
+                Files.write(input, malformed);
+                final Path output = root.resolve("output");
+                new RecursiveWalk().run(new String[]{"--report", "duplicates", input.toString(), output.toString()});
+                checkEquals(List.of(), Files.readAllLines(output), "groups of a walk failed on malformed input");
+            });
+        } finally {
+            delete(root);
+        }
+        runner.exit();
+    }
+
+    /**
+     * Runs walk of the given input lines and returns written groups as lists of paths.
+     */
+    private static List<List<String>> walk(final Path root, final String... lines) throws IOException {
+        final Path input = Files.write(root.resolve("input"), List.of(lines));
+        final Path output = root.resolve("output");
+        new RecursiveWalk().run(new String[]{"--report", "duplicates", input.toString(), output.toString()});
+
+        final List<List<String>> groups = new ArrayList<>();
+        List<String> group = new ArrayList<>();
+        for (final String line : Files.readAllLines(output)) {
+            if (line.isEmpty()) {
+                groups.add(group);
+                group = new ArrayList<>();
+            } else {
+                group.add(line.substring(line.indexOf(' ') + 1));
+            }
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    private static void checkUnique(final List<List<String>> groups) {
+        final Set<String> files = new HashSet<>();
+        for (final List<String> group : groups) {
+            check(group.size() > 1, "group of a single file: " + group);
+            for (final String file : group) {
+                check(files.add(file), "file reported twice: " + file);
+            }
+        }
+    }
+
+    private static boolean contains(final List<List<String>> groups, final String file) {
+        return groups.stream().anyMatch(group -> group.contains(file));
+    }
+
+    private static void delete(final Path root) throws IOException {
+        try (final Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
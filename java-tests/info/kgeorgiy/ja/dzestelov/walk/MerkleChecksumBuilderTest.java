@@ -0,0 +1,178 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+import info.kgeorgiy.ja.dzestelov.walk.hash.HashProviders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkEquals;
+
+/**
+ * Checks roots of {@link MerkleChecksumBuilder} against the RFC 6962 test vectors of Certificate Transparency
+ * and against the recursive definition of RFC 6962, and reuse of roots saved in sidecars.
+ */
+public class MerkleChecksumBuilderTest {
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * Leaf inputs of the Certificate Transparency tests.
+     */
+    private static final byte[][] LEAVES = {
+            {},
+            {0x00},
+            {0x10},
+            {0x20, 0x21},
+            {0x30, 0x31},
+            {0x40, 0x41, 0x42, 0x43},
+            {0x50, 0x51, 0x52, 0x53, 0x54, 0x55, 0x56, 0x57},
+            {0x60, 0x61, 0x62, 0x63, 0x64, 0x65, 0x66, 0x67, 0x68, 0x69, 0x6a, 0x6b, 0x6c, 0x6d, 0x6e, 0x6f},
+    };
+
+    /**
+     * Roots of the first {@code i + 1} leaves.
+     */
+    private static final String[] ROOTS = {
+            "6e340b9cffb37a989ca544e6bb780a2c78901d3fb33738768511a30617afa01d",
+            "fac54203e7cc696cf0dfcb42c92a1d9dbaf70ad9e621f4bd8d98662f00e3c125",
+            "aeb6bcfe274b70a14fb067a5e5578264db0fa9b51af5e0ba159158f329e06e77",
+            "d37ee418976dd95753c1c73862b9398fa2a2cf9b4ff0fdfe8b30cd95209614b7",
+            "4e3bbb1f7b478dcfe71fb631631519a3bca12c9aefca1612bfce4c13a86264d4",
+            "76e67dadbcdf1e10e1b74ddc608abd2f98dfb16fbce75277b5232a127f2087ef",
+            "ddb89be403809e325750d3d263cd78929c2942b7942a34b77e122c9594a74c8c",
+            "5dc9da79a70659a9ad559cb701ded9a2ab9d823aad2f4960cfe370eff4604328",
+    };
+
+    public static void main(final String[] args) throws IOException {
+        final Path root = Files.createTempDirectory("merkle-test");
+        final TestRunner runner = new TestRunner("MerkleChecksumBuilder");
+        try {
+            runner.test("RFC 6962 vectors", () -> {
+                try (final MerkleChecksumBuilder builder = newBuilder(2, null)) {
+                    for (int n = 1; n <= LEAVES.length; n++) {
+                        final byte[] leaves = new byte[n * 32];
+                        for (int i = 0; i < n; i++) {
+                            System.arraycopy(leaf(LEAVES[i]), 0, leaves, i * 32, 32);
+                        }
+                        final byte[] checksum = new byte[32];
+                        builder.root(leaves, checksum);
+                        checkEquals(ROOTS[n - 1], HexFormat.of().formatHex(checksum), "root of " + n + " leaves");
+                    }
+                }
+            });
+
+            runner.test("file roots", () -> {
+                final Random random = new Random(6962);
+                try (final MerkleChecksumBuilder builder = newBuilder(3, null)) {
+                    for (final int size : new int[]{17, 32, 33, 5 * BLOCK_SIZE + 3, 8 * BLOCK_SIZE, 9 * BLOCK_SIZE, 1000}) {
+                        final byte[] content = new byte[size];
+                        random.nextBytes(content);
+                        final Path file = Files.write(root.resolve("file" + size), content);
+                        checkEquals(hex(reference(content)), builder.getStringChecksum(file), "root of " + size + " bytes");
+                    }
+                }
+            });
+
+            runner.test("file of one block", () -> {
+                final Path file = Files.write(root.resolve("small"), new byte[BLOCK_SIZE]);
+                try (final MerkleChecksumBuilder builder = newBuilder(2, null)) {
+                    checkEquals(new FileChecksumBuilder(ALGORITHM).getStringChecksum(file), builder.getStringChecksum(file),
+                            "checksum of a single block");
+                }
+            });
+
+            runner.test("sidecar", () -> {
+                final Path sidecars = root.resolve("sidecars");
+                final Path file = Files.write(root.resolve("sidecar"), new byte[3 * BLOCK_SIZE]);
+                final FileTime time = FileTime.fromMillis(1_000_000);
+                Files.setLastModifiedTime(file, time);
+                try (final MerkleChecksumBuilder builder = newBuilder(2, sidecars)) {
+                    final String saved = builder.getStringChecksum(file);
+                    checkEquals(true, Files.exists(builder.getSidecar(file)), "sidecar saved");
+
+                    final byte[] changed = new byte[3 * BLOCK_SIZE];
+                    changed[0] = 1;
+                    Files.write(file, changed);
+                    Files.setLastModifiedTime(file, time);
+                    checkEquals(saved, builder.getStringChecksum(file), "root of unchanged size and time");
+
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+                    checkEquals(hex(reference(changed)), builder.getStringChecksum(file), "root of changed time");
+                }
+            });
+        } finally {
+            delete(root);
+        }
+        runner.exit();
+    }
+
+    private static MerkleChecksumBuilder newBuilder(final int threads, final Path sidecars)
+            throws NoSuchAlgorithmException {
+        return new MerkleChecksumBuilder(
+                HashProviders.get(ALGORITHM),
+                FileChecksumBuilder.DEFAULT_CHANNEL_THRESHOLD,
+                FileChecksumBuilder.DEFAULT_MAP_THRESHOLD,
+                BLOCK_SIZE,
+                threads,
+                sidecars
+        );
+    }
+
+    /**
+     * Returns root of the blocks of the content by the recursive definition of RFC 6962.
+     */
+    private static byte[] reference(final byte[] content) throws NoSuchAlgorithmException {
+        final List<byte[]> leaves = new ArrayList<>();
+        for (int from = 0; from < content.length; from += BLOCK_SIZE) {
+            leaves.add(leaf(Arrays.copyOfRange(content, from, Math.min(from + BLOCK_SIZE, content.length))));
+        }
+        return tree(leaves);
+    }
+
+    private static byte[] tree(final List<byte[]> leaves) throws NoSuchAlgorithmException {
+        if (leaves.size() == 1) {
+            return leaves.get(0);
+        }
+        int split = 1;
+        while (split * 2 < leaves.size()) {
+            split *= 2;
+        }
+        final MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+        digest.update((byte) 1);
+        digest.update(tree(leaves.subList(0, split)));
+        digest.update(tree(leaves.subList(split, leaves.size())));
+        return digest.digest();
+    }
+
+    private static byte[] leaf(final byte[] data) throws NoSuchAlgorithmException {
+        final MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+        digest.update((byte) 0);
+        digest.update(data);
+        return digest.digest();
+    }
+
+    private static String hex(final byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private static void delete(final Path root) throws IOException {
+        try (final Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package info.kgeorgiy.ja.dzestelov.walk;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.check;
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkEquals;
+
+/**
+ * Checks that output of {@link ParallelChecksumSink} is byte-identical to the output of {@link SequentialChecksumSink},
+ * including missing files and invalid paths among the input lines.
+ */
+public class ParallelChecksumSinkTest {
+
+    private static final int[] THREADS = {2, 3, 8};
+
+    public static void main(final String[] args) throws IOException {
+        final Path root = Files.createTempDirectory("parallel-test");
+        final TestRunner runner = new TestRunner("ParallelChecksumSink");
+        try {
+            final Path tree = Files.createDirectories(root.resolve("tree"));
+            final List<String> files = new ArrayList<>();
+            final Random random = new Random(1);
+            for (int i = 0; i < 200; i++) {
+                final Path directory = Files.createDirectories(tree.resolve("d" + i % 7).resolve("e" + i % 3));
+                final byte[] content = new byte[random.nextInt(3) == 0 ? random.nextInt(1 << 18) : random.nextInt(64)];
+                random.nextBytes(content);
+                files.add(Files.write(directory.resolve("f" + i), content).toString());
+            }
+
+            final List<String> lines = new ArrayList<>(files);
+            for (int i = 0; i < lines.size(); i += 17) {
+                lines.add(i, root.resolve("missing" + i).toString());
+            }
+            lines.add(50, "invalid\u0000path");
+            lines.add(tree.toString());
+
+            runner.test("Walk", () -> checkOrder(root, new Walk(), lines));
+            runner.test("RecursiveWalk", () -> checkOrder(root, new RecursiveWalk(), List.of(
+                    tree.toString(), root.resolve("missing").toString(), tree.resolve("d3").toString()
+            )));
+            runner.test("RecursiveWalk of files", () -> checkOrder(root, new RecursiveWalk(), lines));
+        } finally {
+            delete(root);
+        }
+        runner.exit();
+    }
+
+    private static void checkOrder(final Path root, final BaseWalk walk, final List<String> lines) throws IOException {
+        final Path input = Files.write(root.resolve("input"), lines);
+        final byte[] expected = walk(root, walk, input, 1);
+        check(expected.length > 0, "sequential output must not be empty");
+        for (final int threads : THREADS) {
+            final byte[] actual = walk(root, walk, input, threads);
+            checkEquals(true, Arrays.equals(expected, actual), "output of " + threads + " threads equals sequential");
+        }
+    }
+
+    private static byte[] walk(final Path root, final BaseWalk walk, final Path input, final int threads) throws IOException {
+        final Path output = root.resolve("output");
+        walk.run(new String[]{"--threads", Integer.toString(threads), input.toString(), output.toString()});
+        return Files.readAllBytes(output);
+    }
+
+    private static void delete(final Path root) throws IOException {
+        try (final Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
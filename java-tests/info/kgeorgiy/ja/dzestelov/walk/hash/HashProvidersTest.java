@@ -0,0 +1,109 @@
+package info.kgeorgiy.ja.dzestelov.walk.hash;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkEquals;
+
+/**
+ * Checks {@link XxHash64Provider} and {@link Crc32cProvider} against reference vectors,
+ * fed at once and in pieces of arrays, heap and direct buffers.
+ */
+public class HashProvidersTest {
+
+    /**
+     * Input of all bytes repeated four times and {@code "xyz"}: several stripes and every tail.
+     */
+    private static final byte[] LONG_INPUT = longInput();
+
+    public static void main(final String[] args) {
+        final TestRunner runner = new TestRunner("HashProviders");
+
+        runner.test("XXH64 vectors", () -> {
+            final HashProvider provider = HashProviders.get("XXH64");
+            checkEquals(8, provider.getSize(), "size");
+            checkHash(provider, "", "ef46db3751d8e999");
+            checkHash(provider, "a", "d24ec4f1a98c6e5b");
+            checkHash(provider, "abc", "44bc2cf5ad770999");
+            checkHash(provider, "Nobody inspects the spammish repetition", "fbcea83c8a378bf1");
+            checkHash(provider, LONG_INPUT, "e146cb31b65bc21a");
+        });
+
+        runner.test("CRC32C vectors", () -> {
+            final HashProvider provider = HashProviders.get("CRC32C");
+            checkEquals(4, provider.getSize(), "size");
+            final byte[] ascending = new byte[32];
+            final byte[] descending = new byte[32];
+            for (int i = 0; i < 32; i++) {
+                ascending[i] = (byte) i;
+                descending[i] = (byte) (31 - i);
+            }
+            final byte[] ones = new byte[32];
+            Arrays.fill(ones, (byte) 0xFF);
+            checkHash(provider, "", "00000000");
+            checkHash(provider, "123456789", "e3069283");
+            checkHash(provider, new byte[32], "8a9136aa");
+            checkHash(provider, ones, "62a8ab43");
+            checkHash(provider, ascending, "46dd794e");
+            checkHash(provider, descending, "113fdb5c");
+        });
+
+        runner.test("names", () -> {
+            for (final Map.Entry<String, String> entry : Map.of(
+                    "xxh64", "XXH64", "xxhash64", "XXH64", "crc32c", "CRC32C"
+            ).entrySet()) {
+                checkEquals(entry.getValue(), HashProviders.get(entry.getKey()).getName(), "name of " + entry.getKey());
+            }
+        });
+
+        runner.exit();
+    }
+
+    private static void checkHash(final HashProvider provider, final String input, final String expected) {
+        checkHash(provider, input.getBytes(StandardCharsets.UTF_8), expected);
+    }
+
+    /**
+     * Checks hash of the input fed in one piece and split at evenly spaced positions into arrays and buffers,
+     * reusing a single hasher, since digest resets it.
+     */
+    private static void checkHash(final HashProvider provider, final byte[] input, final String expected) {
+        final Hasher hasher = provider.newHasher();
+        final String name = provider.getName() + " of " + input.length + " bytes";
+        hasher.update(input, 0, input.length);
+        checkEquals(expected, digest(provider, hasher), name);
+
+        for (int split = 0; split <= input.length; split += Math.max(1, input.length / 50)) {
+            hasher.update(input, 0, split);
+            hasher.update(ByteBuffer.wrap(input, split, input.length - split));
+            checkEquals(expected, digest(provider, hasher), name + ", array and heap buffer split at " + split);
+
+            final ByteBuffer direct = ByteBuffer.allocateDirect(input.length).put(input).flip();
+            hasher.update(direct.slice(0, split));
+            hasher.update(direct.position(split));
+            checkEquals(expected, digest(provider, hasher), name + ", direct buffers split at " + split);
+        }
+    }
+
+    private static String digest(final HashProvider provider, final Hasher hasher) {
+        final byte[] checksum = new byte[provider.getSize() + 2];
+        hasher.digest(checksum, 1);
+        return HexFormat.of().formatHex(checksum, 1, checksum.length - 1);
+    }
+
+    private static byte[] longInput() {
+        final byte[] input = new byte[4 * 256 + 3];
+        for (int i = 0; i < 4 * 256; i++) {
+            input[i] = (byte) i;
+        }
+        input[1024] = 'x';
+        input[1025] = 'y';
+        input[1026] = 'z';
+        return input;
+    }
+}
@@ -0,0 +1,151 @@
+package info.kgeorgiy.ja.dzestelov.walk.walker;
+
+import info.kgeorgiy.ja.dzestelov.test.TestRunner;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static info.kgeorgiy.ja.dzestelov.test.TestRunner.checkEquals;
+
+/**
+ * Checks that ordered {@link ParallelTreeWalker} makes exactly the visitor calls of {@link Files#walkFileTree},
+ * including visitor results that skip or terminate, and that unordered one visits the same files.
+ */
+public class ParallelTreeWalkerTest {
+
+    private static final int[] THREADS = {1, 2, 8};
+
+    public static void main(final String[] args) throws IOException {
+        final Path root = createTree();
+        final TestRunner runner = new TestRunner("ParallelTreeWalker");
+        try {
+            final Path deep = root.resolve("b").resolve("b0");
+            final Path sibling = root.resolve("a").resolve("f1");
+
+            runner.test("same calls", () -> checkOrdered(root, file -> FileVisitResult.CONTINUE));
+            runner.test("single file", () -> checkOrdered(sibling, file -> FileVisitResult.CONTINUE));
+            runner.test("missing start", () -> checkOrdered(root.resolve("missing"), file -> FileVisitResult.CONTINUE));
+            runner.test("skip subtree", () -> checkOrdered(
+                    root, file -> file.equals(deep) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE
+            ));
+            runner.test("skip siblings", () -> checkOrdered(
+                    root, file -> file.equals(sibling) ? FileVisitResult.SKIP_SIBLINGS : FileVisitResult.CONTINUE
+            ));
+            runner.test("terminate", () -> checkOrdered(
+                    root, file -> file.equals(deep) ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE
+            ));
+            runner.test("unordered visits same files", () -> {
+                final List<String> expected = sorted(files(walk(null, root, file -> FileVisitResult.CONTINUE)));
+                for (final int threads : THREADS) {
+                    try (final ParallelTreeWalker walker = new ParallelTreeWalker(threads, false)) {
+                        final List<String> actual = sorted(files(walk(walker, root, file -> FileVisitResult.CONTINUE)));
+                        checkEquals(expected, actual, "files of unordered walk on " + threads + " threads");
+                    }
+                }
+            });
+        } finally {
+            delete(root);
+        }
+        runner.exit();
+    }
+
+    /**
+     * Creates wide and deep directories, empty directories and files at every level.
+     */
+    private static Path createTree() throws IOException {
+        final Path root = Files.createTempDirectory("walker-test");
+        for (final String dir : List.of("a", "b", "c/empty", "d")) {
+            Files.createDirectories(root.resolve(dir));
+        }
+        for (int i = 0; i < 5; i++) {
+            Files.writeString(root.resolve("a").resolve("f" + i), "a" + i);
+            Path dir = root.resolve("b").resolve("b" + i);
+            for (int depth = 0; depth < 20; depth++) {
+                dir = Files.createDirectories(dir.resolve("n" + depth));
+                Files.writeString(dir.resolve("f"), "b" + i + depth);
+            }
+        }
+        for (int i = 0; i < 300; i++) {
+            Files.createDirectories(root.resolve("d").resolve("d" + i));
+            Files.writeString(root.resolve("d").resolve("f" + i), "d" + i);
+        }
+        Files.writeString(root.resolve("top"), "top");
+        return root;
+    }
+
+    private static void checkOrdered(final Path start, final Function<Path, FileVisitResult> results) throws IOException {
+        final List<String> expected = walk(null, start, results);
+        for (final int threads : THREADS) {
+            try (final ParallelTreeWalker walker = new ParallelTreeWalker(threads, true)) {
+                checkEquals(expected, walk(walker, start, results), "calls of ordered walk on " + threads + " threads");
+            }
+        }
+    }
+
+    /**
+     * Returns visitor calls of the walk, or of {@link Files#walkFileTree} if the walker is {@code null}.
+     */
+    private static List<String> walk(
+            final ParallelTreeWalker walker,
+            final Path start,
+            final Function<Path, FileVisitResult> results
+    ) throws IOException {
+        final List<String> calls = new ArrayList<>();
+        final FileVisitor<Path> visitor = new FileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+                calls.add("pre " + dir);
+                return results.apply(dir);
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                calls.add("file " + file + " " + attrs.size());
+                return results.apply(file);
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                calls.add("failed " + file + " " + exc.getClass().getSimpleName());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) {
+                calls.add("post " + dir + " " + exc);
+                return FileVisitResult.CONTINUE;
+            }
+        };
+        if (walker == null) {
+            Files.walkFileTree(start, visitor);
+        } else {
+            walker.walkFileTree(start, visitor);
+        }
+        return calls;
+    }
+
+    private static List<String> files(final List<String> calls) {
+        return calls.stream().filter(call -> call.startsWith("file ")).toList();
+    }
+
+    private static List<String> sorted(final List<String> calls) {
+        return calls.stream().sorted().toList();
+    }
+
+    private static void delete(final Path root) throws IOException {
+        try (final Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+cd ..\..
+
+SET artifacts=.\java-advanced-2022\artifacts
+SET hello=.\java-advanced\java-solutions\info\kgeorgiy\ja\dzestelov\hello
+SET util=.\java-advanced\java-solutions\info\kgeorgiy\ja\dzestelov\util
+SET benchmark=.\java-advanced\java-benchmarks\info\kgeorgiy\ja\dzestelov\hello\benchmark
+SET result=.\java-advanced\java-benchmarks\info\kgeorgiy\ja\dzestelov\benchmark
+SET temp=.\java-advanced\scripts\temp\hello-benchmark
+
+mkdir %temp%
+dir /s /b %hello%\*.java %util%\*.java %benchmark%\*.java %result%\*.java > %temp%\sources.txt
+javac -cp %artifacts%\* -d %temp% @%temp%\sources.txt
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.hello.benchmark.HelloBenchmark --output .\java-advanced\scripts\hello-benchmark.json %*
@@ -0,0 +1,20 @@
+cd ..\..
+
+SET artifacts=.\java-advanced-2022\artifacts
+SET solutions=.\java-advanced\java-solutions\info\kgeorgiy\ja\dzestelov
+SET tests=.\java-advanced\java-tests\info\kgeorgiy\ja\dzestelov
+SET temp=.\java-advanced\scripts\temp\tests
+
+mkdir %temp%
+dir /s /b %solutions%\walk\*.java %solutions%\hello\*.java %solutions%\concurrent\*.java %solutions%\util\*.java %tests%\*.java > %temp%\sources.txt
+javac -cp %artifacts%\* -d %temp% @%temp%\sources.txt
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.walk.ChecksumCacheTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.walk.ChecksumWriterTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.walk.DuplicateChecksumSinkTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.walk.MerkleChecksumBuilderTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.walk.ParallelChecksumSinkTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.walk.walker.ParallelTreeWalkerTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.walk.hash.HashProvidersTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.hello.UDPUtilsTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.util.LatencyHistogramTest
+java -cp %artifacts%\*;%temp% info.kgeorgiy.ja.dzestelov.concurrent.ParallelMapperImplTest
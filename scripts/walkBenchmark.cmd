@@ -0,0 +1,12 @@
+cd ..\..
+
+SET walk=.\java-advanced\java-solutions\info\kgeorgiy\ja\dzestelov\walk
+SET util=.\java-advanced\java-solutions\info\kgeorgiy\ja\dzestelov\util
+SET benchmark=.\java-advanced\java-benchmarks\info\kgeorgiy\ja\dzestelov\walk\benchmark
+SET result=.\java-advanced\java-benchmarks\info\kgeorgiy\ja\dzestelov\benchmark
+SET temp=.\java-advanced\scripts\temp\benchmark
+
+mkdir %temp%
+dir /s /b %walk%\*.java %util%\*.java %benchmark%\*.java %result%\*.java > %temp%\sources.txt
+javac -d %temp% @%temp%\sources.txt
+java -cp %temp% info.kgeorgiy.ja.dzestelov.walk.benchmark.WalkBenchmark --output .\java-advanced\scripts\walk-benchmark.json %*